@@ -0,0 +1,114 @@
+package com.example.carins.benchmarks;
+
+import com.example.carins.CarInsuranceApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Starts the application without a web server, on its own in-memory database, with a synthetic
+ * fleet loaded before the application's startup indexes are built.
+ * <p>
+ * For {@code cars} cars: one owner per 10 cars, four consecutive yearly policies per car starting
+ * between 2023-01-01 and 2023-12-31, and {@value #CLAIMS_PER_CAR} claims per car between 2023 and
+ * 2025. Synthetic ids start at {@value #FIRST_ID}, clear of the sample data.
+ */
+public final class BenchmarkContext {
+
+    public static final long FIRST_ID = 1_000;
+    public static final int CLAIMS_PER_CAR = 20;
+
+    private BenchmarkContext() {}
+
+    public static ConfigurableApplicationContext start(int cars) {
+        // Command-line args: builder default properties would lose to the application's own application.properties.
+        return new SpringApplicationBuilder(CarInsuranceApplication.class, SyntheticFleet.class)
+                .run("--spring.main.web-application-type=none",
+                        "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:carins-bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--carins.expiry.timer.enabled=false",
+                        "--carins.benchmark.cars=" + cars,
+                        "--logging.level.root=WARN");
+    }
+
+    public static long carId(int index) {
+        return FIRST_ID + index;
+    }
+
+    // Before SampleDataInitializer, which then moves the id sequences past the synthetic rows.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    static class SyntheticFleet implements ApplicationRunner {
+        private static final int BATCH = 5_000;
+
+        private final JdbcTemplate jdbc;
+        private final int cars;
+
+        SyntheticFleet(JdbcTemplate jdbc, @Value("${carins.benchmark.cars}") int cars) {
+            this.jdbc = jdbc;
+            this.cars = cars;
+        }
+
+        @Override
+        public void run(ApplicationArguments args) {
+            Random random = new Random(42);
+            int owners = Math.max(1, cars / 10);
+            List<Object[]> rows = new ArrayList<>();
+            for (int o = 0; o < owners; o++) {
+                rows.add(new Object[]{FIRST_ID + o, "Owner " + o, "owner" + o + "@bench.example.com"});
+            }
+            insert("insert into owner (id, name, email) values (?, ?, ?)", rows);
+
+            for (int c = 0; c < cars; c++) {
+                rows.add(new Object[]{carId(c), String.format("B%07d", c), "Make" + (c % 20), "Model" + (c % 50),
+                        2005 + c % 20, FIRST_ID + c % owners});
+            }
+            insert("insert into car (id, vin, make, model, year_of_manufacture, owner_id) values (?, ?, ?, ?, ?, ?)", rows);
+
+            long policyId = FIRST_ID;
+            for (int c = 0; c < cars; c++) {
+                LocalDate start = LocalDate.of(2023, 1, 1).plusDays(random.nextInt(365));
+                for (int year = 0; year < 4; year++) {
+                    LocalDate from = start.plusYears(year);
+                    rows.add(new Object[]{policyId++, carId(c), "Provider" + (c + year) % 5,
+                            Date.valueOf(from), Date.valueOf(from.plusYears(1).minusDays(1))});
+                }
+                if (rows.size() >= BATCH) {
+                    insert("insert into insurancepolicy (id, car_id, provider, start_date, end_date) values (?, ?, ?, ?, ?)", rows);
+                }
+            }
+            insert("insert into insurancepolicy (id, car_id, provider, start_date, end_date) values (?, ?, ?, ?, ?)", rows);
+
+            long claimId = FIRST_ID;
+            for (int c = 0; c < cars; c++) {
+                for (int k = 0; k < CLAIMS_PER_CAR; k++) {
+                    rows.add(new Object[]{claimId++, carId(c), Date.valueOf(LocalDate.of(2023, 1, 1).plusDays(random.nextInt(1_095))),
+                            "Synthetic claim " + k, BigDecimal.valueOf(100 + random.nextInt(20_000), 2)});
+                }
+                if (rows.size() >= BATCH) {
+                    insert("insert into claim (id, car_id, claim_date, description, amount) values (?, ?, ?, ?, ?)", rows);
+                }
+            }
+            insert("insert into claim (id, car_id, claim_date, description, amount) values (?, ?, ?, ?, ?)", rows);
+        }
+
+        private void insert(String sql, List<Object[]> rows) {
+            for (int i = 0; i < rows.size(); i += BATCH) {
+                jdbc.batchUpdate(sql, rows.subList(i, Math.min(rows.size(), i + BATCH)));
+            }
+            rows.clear();
+        }
+    }
+}
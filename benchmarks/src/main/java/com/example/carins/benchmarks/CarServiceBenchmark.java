@@ -0,0 +1,68 @@
+package com.example.carins.benchmarks;
+
+import com.example.carins.service.CarService;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.ClaimDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service read paths the API serves most, against a synthetic fleet. Each call picks a random
+ * car (and date), so the caches in front of the database see a realistic spread of keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarServiceBenchmark {
+
+    @Param({"10000"})
+    int cars;
+
+    private ConfigurableApplicationContext context;
+    private CarService carService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start(cars);
+        carService = context.getBean(CarService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean isInsuranceValid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return carService.isInsuranceValid(randomCar(random), LocalDate.of(2023, 1, 1).plusDays(random.nextInt(1_826)));
+    }
+
+    @Benchmark
+    public CarDto findCarById() {
+        return carService.findCarById(randomCar(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<ClaimDto> history() {
+        return carService.history(randomCar(ThreadLocalRandom.current()), null, null, null, null, BenchmarkContext.CLAIMS_PER_CAR);
+    }
+
+    // The JPQL constructor projection that builds CarDto rows for the paged car list.
+    @Benchmark
+    public List<CarDto> listCarsPage() {
+        return carService.listCars(randomCar(ThreadLocalRandom.current()) - 1, 100);
+    }
+
+    private long randomCar(ThreadLocalRandom random) {
+        return BenchmarkContext.carId(random.nextInt(cars));
+    }
+}
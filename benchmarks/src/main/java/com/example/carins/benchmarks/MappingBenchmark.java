@@ -0,0 +1,86 @@
+package com.example.carins.benchmarks;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.model.Owner;
+import com.example.carins.service.CarMappers;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.ClaimDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-to-DTO mapping in {@link CarMappers} and Jackson serialization of the DTO lists the API
+ * returns, over {@code size} synthetic rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1000"})
+    int size;
+
+    private List<Car> carEntities;
+    private List<Claim> claimEntities;
+    private List<CarDto> carDtos;
+    private List<ClaimDto> claimDtos;
+    // Configured like Boot's auto-configured mapper (ISO dates, java.time support).
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        carEntities = new ArrayList<>(size);
+        claimEntities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Owner owner = new Owner("Owner " + i / 10, "owner" + i / 10 + "@bench.example.com");
+            Car car = new Car(String.format("B%07d", i), "Make" + i % 20, "Model" + i % 50, 2005 + i % 20, owner);
+            carEntities.add(car);
+            Claim claim = new Claim(car, LocalDate.of(2023, 1, 1).plusDays(i % 1_095), "Synthetic claim " + i,
+                    BigDecimal.valueOf(100 + i, 2));
+            claim.setId((long) i);
+            claimEntities.add(claim);
+        }
+        carDtos = mapCars();
+        claimDtos = mapClaims();
+    }
+
+    @Benchmark
+    public List<CarDto> mapCars() {
+        List<CarDto> dtos = new ArrayList<>(carEntities.size());
+        for (Car car : carEntities) {
+            dtos.add(CarMappers.carToDto(car));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<ClaimDto> mapClaims() {
+        List<ClaimDto> dtos = new ArrayList<>(claimEntities.size());
+        for (Claim claim : claimEntities) {
+            dtos.add(CarMappers.claimToDto(claim));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public byte[] serializeCars() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(carDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeClaims() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(claimDtos);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.carins.benchmarks;
+
+import com.example.carins.jobs.ExpiryRunReport;
+import com.example.carins.jobs.PolicyExpiryScheduler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full {@link PolicyExpiryScheduler#logRecentlyExpiredPolicies} run over every synthetic policy
+ * that has expired, about three per car. Before each run the expiry log is emptied and the job's
+ * watermark moved back to before the first synthetic policy, so every run does the full work.
+ * After each run its report is checked, so a run that skipped the work (e.g. lost the job lease)
+ * fails the benchmark instead of passing as a fast one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PolicyExpiryBenchmark {
+
+    @Param({"10000"})
+    int cars;
+
+    private ConfigurableApplicationContext context;
+    private PolicyExpiryScheduler scheduler;
+    private JdbcTemplate jdbc;
+    private Instant iterationStarted;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start(cars);
+        scheduler = context.getBean(PolicyExpiryScheduler.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetJob() {
+        jdbc.update("delete from policy_expiry_log");
+        jdbc.update("delete from job_watermark where job_name = 'policy-expiry'");
+        jdbc.update("insert into job_watermark (job_name, last_processed_date) values ('policy-expiry', DATE '2022-12-31')");
+        iterationStarted = Instant.now();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkRun() {
+        ExpiryRunReport run = scheduler.lastRun()
+                .filter(r -> !r.startedAt().isBefore(iterationStarted))
+                .orElseThrow(() -> new IllegalStateException("The expiry job did not run in this iteration"));
+        if (run.recorded() == 0) {
+            throw new IllegalStateException("The expiry run recorded no policies");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public void logRecentlyExpiredPolicies() {
+        scheduler.logRecentlyExpiredPolicies();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.carins.analytics;
+
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.web.dto.ClaimPercentilesDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory claim amount percentiles per insurer and per car make/model, kept as
+ * {@link QuantileSketch}es. Make and overall figures are merged from the make/model sketches on
+ * request, so each claim is added to two sketches only. Claim writes must go through
+ * {@link #record} to keep the sketches current; {@link #rebuild} recomputes them in one streaming
+ * pass over the claims, e.g. after policies were added that change which insurer a past claim
+ * falls under.
+ */
+@Component
+public class ClaimAmountAnalytics {
+    private static final Logger log = LoggerFactory.getLogger(ClaimAmountAnalytics.class);
+
+    public enum Dimension { PROVIDER, MAKE, MODEL }
+
+    static final String UNINSURED = "(uninsured)";
+    static final String UNKNOWN = "(unknown)";
+
+    private final ClaimRepository claimRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final double relativeAccuracy;
+
+    // A lock rather than a monitor: the rebuild streams from the database while holding it, which would pin a virtual thread.
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private Sketches live;
+    private Rebuild running;
+
+    public ClaimAmountAnalytics(ClaimRepository claimRepository,
+                                PlatformTransactionManager txManager,
+                                @Value("${carins.analytics.relative-accuracy:0.01}") double relativeAccuracy) {
+        this.claimRepository = claimRepository;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.relativeAccuracy = relativeAccuracy;
+        this.live = new Sketches(relativeAccuracy);
+    }
+
+    // Void, so Spring does not publish the returned report as an event.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Recomputes all sketches from the claims and swaps them in. Claims recorded while the stream
+     * runs are reconciled by id against what the stream saw.
+     */
+    public RebuildReport rebuild() {
+        rebuildLock.lock();
+        try {
+            long started = System.nanoTime();
+            Rebuild rebuild = new Rebuild();
+            synchronized (this) {
+                running = rebuild;
+            }
+            Sketches fresh = new Sketches(relativeAccuracy);
+            long claims;
+            try {
+                claims = readOnlyTx.execute(status -> {
+                    long n = 0;
+                    try (Stream<ClaimFacts> facts = claimRepository.streamAllFacts()) {
+                        for (ClaimFacts f : (Iterable<ClaimFacts>) facts::iterator) {
+                            // Committed before the stream's snapshot, so it is counted here only.
+                            rebuild.committing.remove(f.claimId());
+                            fresh.add(f);
+                            n++;
+                        }
+                    }
+                    return n;
+                });
+            } finally {
+                synchronized (this) {
+                    running = null;
+                }
+            }
+            synchronized (this) {
+                // Whatever is left committed after the snapshot.
+                rebuild.committing.values().forEach(fresh::add);
+                rebuild.applied = true;
+                live = fresh;
+            }
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Claim amount analytics rebuilt from {} claims in {} ms", claims, millis);
+            return new RebuildReport(claims, millis);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Adds newly written claims once the caller's transaction commits. The claims must be flushed.
+     */
+    public void record(Collection<Long> claimIds) {
+        if (claimIds.isEmpty()) {
+            return;
+        }
+        List<ClaimFacts> facts = claimRepository.findFactsByIds(claimIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            facts.forEach(f -> add(f, null));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Rebuild rebuild;
+
+            // Announced before the commit, so a rebuild streaming meanwhile can tell whether its snapshot has them.
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (ClaimAmountAnalytics.this) {
+                    rebuild = running;
+                    if (rebuild != null) {
+                        facts.forEach(f -> rebuild.committing.put(f.claimId(), f));
+                    }
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    facts.forEach(f -> add(f, rebuild));
+                } else if (rebuild != null) {
+                    facts.forEach(f -> rebuild.committing.remove(f.claimId()));
+                }
+            }
+        });
+    }
+
+    /**
+     * p50/p95/p99 with count, min and max for every group of the dimension, plus the overall figures.
+     */
+    public ClaimPercentilesDto percentiles(Dimension by) {
+        Map<String, QuantileSketch> groups = new TreeMap<>();
+        QuantileSketch overall = new QuantileSketch(relativeAccuracy);
+        synchronized (this) {
+            Sketches s = live;
+            if (by == Dimension.PROVIDER) {
+                s.byProvider.forEach((provider, sketch) -> groups.put(provider, sketch.copy()));
+            }
+            s.byModel.forEach((model, sketch) -> {
+                overall.merge(sketch);
+                if (by == Dimension.MAKE) {
+                    groups.computeIfAbsent(model.make(), k -> new QuantileSketch(relativeAccuracy)).merge(sketch);
+                } else if (by == Dimension.MODEL) {
+                    groups.put(model.make() + "/" + model.model(), sketch.copy());
+                }
+            });
+        }
+
+        List<ClaimPercentilesDto.Group> rows = new ArrayList<>(groups.size());
+        groups.forEach((key, sketch) -> rows.add(toGroup(key, sketch)));
+        return new ClaimPercentilesDto(by.name(), relativeAccuracy, toGroup("all", overall), rows);
+    }
+
+    /**
+     * Claim count and median amount of one make/model, or of all claims when {@code make} is null.
+     */
+    public Severity severity(String make, String model) {
+        QuantileSketch sketch;
+        synchronized (this) {
+            if (make == null) {
+                sketch = new QuantileSketch(relativeAccuracy);
+                live.byModel.values().forEach(sketch::merge);
+            } else {
+                QuantileSketch s = live.byModel.get(new ModelKey(make, model != null ? model : UNKNOWN));
+                sketch = s != null ? s.copy() : new QuantileSketch(relativeAccuracy);
+            }
+        }
+        return new Severity(sketch.count(), sketch.quantile(0.5));
+    }
+
+    // A rebuild that already swapped in its sketches has counted the claim.
+    private synchronized void add(ClaimFacts f, Rebuild announcedTo) {
+        if (announcedTo == null || !announcedTo.applied) {
+            live.add(f);
+        }
+    }
+
+    private static ClaimPercentilesDto.Group toGroup(String key, QuantileSketch s) {
+        return new ClaimPercentilesDto.Group(key, s.count(),
+                amount(s.min()), amount(s.quantile(0.5)), amount(s.quantile(0.95)),
+                amount(s.quantile(0.99)), amount(s.max()));
+    }
+
+    private static BigDecimal amount(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public record RebuildReport(long claims, long millis) {}
+
+    /** {@code median} is NaN without claims. */
+    public record Severity(long claims, double median) {}
+
+    private record ModelKey(String make, String model) {}
+
+    private static final class Rebuild {
+        final Map<Long, ClaimFacts> committing = new ConcurrentHashMap<>();
+        boolean applied;
+    }
+
+    // Guarded by the ClaimAmountAnalytics monitor once live.
+    private static final class Sketches {
+        final double relativeAccuracy;
+        final Map<String, QuantileSketch> byProvider = new HashMap<>();
+        final Map<ModelKey, QuantileSketch> byModel = new HashMap<>();
+
+        Sketches(double relativeAccuracy) {
+            this.relativeAccuracy = relativeAccuracy;
+        }
+
+        void add(ClaimFacts f) {
+            double amount = f.amount().doubleValue();
+            String provider = f.provider() != null ? f.provider() : UNINSURED;
+            ModelKey model = new ModelKey(f.make() != null ? f.make() : UNKNOWN, f.model() != null ? f.model() : UNKNOWN);
+            byProvider.computeIfAbsent(provider, k -> new QuantileSketch(relativeAccuracy)).add(amount);
+            byModel.computeIfAbsent(model, k -> new QuantileSketch(relativeAccuracy)).add(amount);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.carins.analytics;
+
+import java.math.BigDecimal;
+
+/**
+ * A claim's amount with the dimensions it is reported under. {@code provider} is the insurer of the
+ * policy covering the claim date (the latest-starting one if several do), or null when none does.
+ */
+public record ClaimFacts(Long claimId, BigDecimal amount, String make, String model, String provider) {}
@@ -0,0 +1,154 @@
+package com.example.carins.analytics;
+
+/**
+ * Mergeable quantile sketch over non-negative values with a fixed relative error, after DDSketch:
+ * a value {@code x} is counted in bucket {@code ceil(log(x) / log(gamma))}, so every bucket spans
+ * {@code (gamma^(i-1), gamma^i]} and any quantile is answered within {@code relativeAccuracy} of
+ * the true value. Two sketches with the same accuracy merge exactly by adding bucket counts, so
+ * sketches per partition can be combined into any roll-up. Memory grows with the logarithm of the
+ * value range, not with the number of values. Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    // Values below this are counted as zero.
+    private static final double MIN_INDEXABLE = 1e-6;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy must be in (0, 1)");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        if (!(value >= 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Only finite non-negative values can be added: " + value);
+        }
+        if (value < MIN_INDEXABLE) {
+            zeroCount++;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / logGamma);
+            ensureCapacity(index, index);
+            counts[index - offset]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /** Adds all values of {@code other}, which must have the same relative accuracy. */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Sketches with different accuracy cannot be merged");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts.length > 0) {
+            ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(relativeAccuracy);
+        copy.merge(this);
+        return copy;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** The smallest value added; NaN when empty. */
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /** The largest value added; NaN when empty. */
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * The value at quantile {@code q} (0..1), within the relative accuracy; NaN when empty.
+     * The extremes are exact.
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        long rank = (long) (q * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                // Midpoint of the bucket in relative terms, clamped to the values actually seen.
+                double estimate = 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    private void ensureCapacity(int fromIndex, int toIndex) {
+        if (counts.length == 0) {
+            counts = new long[toIndex - fromIndex + 1];
+            offset = fromIndex;
+            return;
+        }
+        int currentEnd = offset + counts.length - 1;
+        if (fromIndex >= offset && toIndex <= currentEnd) {
+            return;
+        }
+        // Grow with some slack on the side that overflowed, so a run of new extremes does not copy every time.
+        int newStart = fromIndex < offset ? Math.min(fromIndex, offset - counts.length / 2) : offset;
+        int newEnd = toIndex > currentEnd ? Math.max(toIndex, currentEnd + counts.length / 2) : currentEnd;
+        long[] grown = new long[newEnd - newStart + 1];
+        System.arraycopy(counts, 0, grown, offset - newStart, counts.length);
+        counts = grown;
+        offset = newStart;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch[count=" + count + ", buckets=" + counts.length + "]";
+    }
+}
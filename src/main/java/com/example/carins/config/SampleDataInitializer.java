@@ -0,0 +1,59 @@
+package com.example.carins.config;
+
+import com.example.carins.model.InsurancePolicy;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Aligns the id sequences with the rows loaded by {@code import.sql}, which uses explicit ids,
+ * and gives the open-ended sample policies an end date. Both bypass Hibernate, so the policy cache
+ * region is evicted afterwards.
+ */
+@Component
+public class SampleDataInitializer implements ApplicationRunner {
+
+    // table -> sequence behind its @SequenceGenerator
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "owner", "owner_seq",
+            "car", "car_seq",
+            "insurancepolicy", "insurancepolicy_seq",
+            "claim", "claim_seq",
+            "policy_expiry_log", "policy_expiry_log_seq");
+
+    private final JdbcTemplate jdbc;
+    private final EntityManagerFactory emf;
+
+    public SampleDataInitializer(JdbcTemplate jdbc, EntityManagerFactory emf) {
+        this.jdbc = jdbc;
+        this.emf = emf;
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        SEQUENCES.forEach(this::restartAfterMaxId);
+
+        jdbc.execute("""
+            update insurancepolicy
+               set end_date = dateadd('YEAR', 1, start_date)
+             where end_date is null
+        """);
+        emf.getCache().evict(InsurancePolicy.class);
+    }
+
+    // The pooled optimizer hands out the block (value - increment, value], so the next value
+    // must be a full increment past the highest imported id.
+    private void restartAfterMaxId(String table, String sequence) {
+        Long maxId = jdbc.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        Long increment = jdbc.queryForObject(
+                "select increment from information_schema.sequences where lower(sequence_name) = ?",
+                Long.class, sequence);
+        jdbc.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + increment));
+    }
+}
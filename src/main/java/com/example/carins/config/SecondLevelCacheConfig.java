@@ -0,0 +1,66 @@
+package com.example.carins.config;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.Owner;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache on Caffeine, through JCache. Every region is created here, bounded
+ * by {@code carins.cache.<region>.max-size} and expired {@code carins.cache.<region>.ttl} after
+ * it was written; Hibernate is told to fail on any region it would otherwise create unbounded.
+ * <p>
+ * Each application context gets its own cache manager, so contexts sharing a JVM (tests) never
+ * see each other's entities.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String QUERY_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    // Hibernate compares query results against these timestamps; they must never be evicted before the results.
+    public static final String TIMESTAMPS_REGION = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment env) {
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("carins-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        region(manager, env, "owner", Owner.CACHE_REGION, 10_000, Duration.ofMinutes(30));
+        region(manager, env, "car", Car.CACHE_REGION, 50_000, Duration.ofMinutes(30));
+        region(manager, env, "policy", InsurancePolicy.CACHE_REGION, 100_000, Duration.ofMinutes(10));
+        region(manager, env, "query", QUERY_REGION, 10_000, Duration.ofMinutes(5));
+        manager.createCache(TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void region(CacheManager manager, Environment env, String key, String name,
+                               long maxSize, Duration ttl) {
+        String prefix = "carins.cache." + key + ".";
+        long size = env.getProperty(prefix + "max-size", Long.class, maxSize);
+        Duration expiry = env.getProperty(prefix + "ttl", Duration.class, ttl);
+        manager.createCache(name, new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(size))
+                .setExpireAfterWrite(OptionalLong.of(expiry.toNanos())));
+    }
+}
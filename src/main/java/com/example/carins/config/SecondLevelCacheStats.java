@@ -0,0 +1,65 @@
+package com.example.carins.config;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.Owner;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import java.util.List;
+
+/**
+ * Hit, miss and put counts of the second-level cache regions since startup, from Hibernate's
+ * statistics, with the current entry count of each region from Caffeine. The counts are null while
+ * {@code carins.cache.statistics} is off, since Hibernate then keeps them at 0.
+ */
+@Component
+public class SecondLevelCacheStats {
+
+    private static final List<String> ENTITY_REGIONS =
+            List.of(Owner.CACHE_REGION, Car.CACHE_REGION, InsurancePolicy.CACHE_REGION);
+
+    private final Statistics statistics;
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheStats(EntityManagerFactory emf, CacheManager hibernateCacheManager) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        this.cacheManager = hibernateCacheManager;
+    }
+
+    public Snapshot snapshot() {
+        if (!statistics.isStatisticsEnabled()) {
+            List<Region> regions = ENTITY_REGIONS.stream()
+                    .map(name -> new Region(name, null, null, null, size(name)))
+                    .toList();
+            Region queries = new Region(SecondLevelCacheConfig.QUERY_REGION, null, null, null,
+                    size(SecondLevelCacheConfig.QUERY_REGION));
+            return new Snapshot(false, regions, queries);
+        }
+        List<Region> regions = ENTITY_REGIONS.stream()
+                .map(name -> {
+                    CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(name);
+                    return new Region(name, region.getHitCount(), region.getMissCount(), region.getPutCount(), size(name));
+                })
+                .toList();
+        Region queries = new Region(SecondLevelCacheConfig.QUERY_REGION, statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(),
+                size(SecondLevelCacheConfig.QUERY_REGION));
+        return new Snapshot(true, regions, queries);
+    }
+
+    private long size(String region) {
+        javax.cache.Cache<Object, Object> cache = cacheManager.getCache(region);
+        return cache == null ? 0 : cache.unwrap(Cache.class).estimatedSize();
+    }
+
+    public record Snapshot(boolean statisticsEnabled, List<Region> regions, Region queries) {}
+
+    // hits, misses and puts are null when statistics are disabled.
+    public record Region(String name, Long hits, Long misses, Long puts, long size) {}
+}
@@ -0,0 +1,402 @@
+package com.example.carins.coverage;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a Roaring bitmap. Values are split by their
+ * high 16 bits into chunks of 65536; a chunk holding at most {@value #ARRAY_MAX} values keeps them
+ * as a sorted {@code char[]}, a fuller one as a 8 KiB bit set. Sparse and dense id ranges both stay
+ * small, and intersections and differences work chunk by chunk on whole words where possible.
+ * <p>
+ * Not thread-safe.
+ */
+public final class CompressedBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public boolean add(int value) {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        int i = indexOf(high);
+        if (i < 0) {
+            i = -i - 1;
+            insertAt(i, high, new ArrayContainer());
+        }
+        Container c = containers[i];
+        int before = c.cardinality();
+        containers[i] = c.add((char) value);
+        return containers[i].cardinality() > before;
+    }
+
+    public boolean remove(int value) {
+        checkValue(value);
+        int i = indexOf((char) (value >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        Container c = containers[i];
+        int before = c.cardinality();
+        Container after = c.remove((char) value);
+        if (after.cardinality() == 0) {
+            removeAt(i);
+        } else {
+            containers[i] = after;
+        }
+        return after.cardinality() < before;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOf((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public int cardinality() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            n += containers[i].cardinality();
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(4, size));
+        copy.containers = new Container[copy.keys.length];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Visits the values in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public long sizeInBytes() {
+        long bytes = 16L + keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values must not be negative: " + value);
+        }
+    }
+
+    private int indexOf(char high) {
+        // Values mostly arrive in ascending order, so check the last chunk first.
+        if (size > 0 && keys[size - 1] == high) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insertAt(int i, char key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    private void appendIfNotEmpty(char key, Container c) {
+        if (c.cardinality() > 0) {
+            insertAt(size, key, c);
+        }
+    }
+
+    /**
+     * The low 16 bits of the values in one chunk.
+     */
+    private abstract static sealed class Container permits ArrayContainer, BitSetContainer {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        // Both return the container to keep using, which may be a converted one.
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int n;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int n) {
+            this.values = values;
+            this.n = n;
+        }
+
+        @Override
+        int cardinality() {
+            return n;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, n, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = n > 0 && values[n - 1] < value ? -n - 1 : Arrays.binarySearch(values, 0, n, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (n == ARRAY_MAX) {
+                return toBitSet().add(value);
+            }
+            i = -i - 1;
+            if (n == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, n * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, n - i);
+            values[i] = value;
+            n++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, n, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, n - i - 1);
+                n--;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] out = new char[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (other.contains(values[i])) {
+                    out[k++] = values[i];
+                }
+            }
+            return new ArrayContainer(out, k);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] out = new char[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (!other.contains(values[i])) {
+                    out[k++] = values[i];
+                }
+            }
+            return new ArrayContainer(out, k);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, n)), n);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < n; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + values.length * 2L;
+        }
+
+        private BitSetContainer toBitSet() {
+            BitSetContainer bits = new BitSetContainer();
+            for (int i = 0; i < n; i++) {
+                bits.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bits.cardinality = n;
+            return bits;
+        }
+    }
+
+    private static final class BitSetContainer extends Container {
+        final long[] words = new long[1024];
+        int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (words[value >>> 6] != before) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (words[value >>> 6] != before) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof BitSetContainer bits) {
+                BitSetContainer out = new BitSetContainer();
+                for (int i = 0; i < words.length; i++) {
+                    out.words[i] = words[i] & bits.words[i];
+                    out.cardinality += Long.bitCount(out.words[i]);
+                }
+                return out.cardinality <= ARRAY_MAX ? out.toArray() : out;
+            }
+            return other.and(this);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            BitSetContainer out = new BitSetContainer();
+            System.arraycopy(words, 0, out.words, 0, words.length);
+            out.cardinality = cardinality;
+            if (other instanceof BitSetContainer bits) {
+                out.cardinality = 0;
+                for (int i = 0; i < words.length; i++) {
+                    out.words[i] &= ~bits.words[i];
+                    out.cardinality += Long.bitCount(out.words[i]);
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.n; i++) {
+                    char v = array.values[i];
+                    if ((out.words[v >>> 6] & (1L << v)) != 0) {
+                        out.words[v >>> 6] &= ~(1L << v);
+                        out.cardinality--;
+                    }
+                }
+            }
+            return out.cardinality <= ARRAY_MAX ? out.toArray() : out;
+        }
+
+        @Override
+        Container copy() {
+            BitSetContainer copy = new BitSetContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + words.length * 8L;
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int[] k = {0};
+            forEach(0, v -> values[k[0]++] = (char) v);
+            return new ArrayContainer(values, k[0]);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.carins.coverage;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.CarWrittenEvent;
+import com.example.carins.service.CoverageChangedEvent;
+import com.example.carins.service.PolicyWrittenEvent;
+import com.example.carins.web.dto.CoverageSetDto;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * One {@link CompressedBitmap} of insured car ids per day, from {@code past-days} before today to
+ * {@code future-days} after it, plus the set of all car ids. "Who is (un)insured on D" is then a
+ * bitmap copy, intersection or difference instead of a query per car.
+ * <p>
+ * Days live in a ring indexed by epoch day, so the nightly {@link #slide} only loads the days that
+ * enter the horizon, into the slots of those that left it. New policies set their days directly;
+ * an updated policy may have shrunk or moved, so its cars' policies are re-read and swapped in. Dates
+ * outside the horizon are answered from the database. Writes on other nodes arrive as
+ * {@link CoverageChangedEvent}s and re-read the cars concerned. Car ids must fit in an int.
+ */
+@Component
+public class DailyCoverageIndex {
+    private static final Logger log = LoggerFactory.getLogger(DailyCoverageIndex.class);
+
+    private final InsurancePolicyRepository policyRepository;
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final int pastDays;
+    private final int futureDays;
+
+    // Guards everything below; bitmaps are only read under the read lock and never handed out.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CompressedBitmap[] days;
+    private CompressedBitmap cars = new CompressedBitmap();
+    private long firstDay;
+    private long lastDay = -1;
+    private boolean loaded;
+
+    public DailyCoverageIndex(InsurancePolicyRepository policyRepository,
+                              CarRepository carRepository,
+                              OwnerRepository ownerRepository,
+                              PlatformTransactionManager txManager,
+                              @Value("${carins.coverage.past-days:365}") int pastDays,
+                              @Value("${carins.coverage.future-days:365}") int futureDays) {
+        if (pastDays < 0 || futureDays < 0) {
+            throw new IllegalArgumentException("carins.coverage.past-days and future-days must not be negative");
+        }
+        this.policyRepository = policyRepository;
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.pastDays = pastDays;
+        this.futureDays = futureDays;
+        this.days = new CompressedBitmap[pastDays + futureDays + 1];
+    }
+
+    // Runs after the ApplicationRunners, so open-ended sample policies are already fixed up.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildAround(LocalDate.now());
+    }
+
+    void rebuildAround(LocalDate today) {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            firstDay = today.minusDays(pastDays).toEpochDay();
+            lastDay = today.plusDays(futureDays).toEpochDay();
+            for (int i = 0; i < days.length; i++) {
+                days[i] = new CompressedBitmap();
+            }
+            cars = new CompressedBitmap();
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = policyRepository.streamCoveragePeriods(
+                        LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay))) {
+                    rows.forEach(row -> {
+                        int carId = carId((Long) row[0]);
+                        cars.add(carId);
+                        if (row[2] != null) {
+                            cover(carId, (LocalDate) row[2], (LocalDate) row[3]);
+                        }
+                    });
+                }
+            });
+            loaded = true;
+            log.info("Daily coverage bitmaps for {} cars over {} days ({} to {}) built in {} ms, {} KiB",
+                    cars.cardinality(), days.length, LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay),
+                    (System.nanoTime() - started) / 1_000_000, sizeInBytes() / 1024);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the horizon to end {@code future-days} after today, loading only the days that enter it.
+     */
+    @Scheduled(cron = "${carins.coverage.slide-cron:0 5 0 * * *}")
+    public void slide() {
+        slideTo(LocalDate.now());
+    }
+
+    void slideTo(LocalDate today) {
+        long newFirst = today.minusDays(pastDays).toEpochDay();
+        long newLast = today.plusDays(futureDays).toEpochDay();
+        lock.writeLock().lock();
+        try {
+            if (!loaded || newFirst < firstDay || newFirst > lastDay) {
+                // Not built yet, moved backwards, or jumped past the whole horizon.
+                rebuildAround(today);
+                return;
+            }
+            for (long day = lastDay + 1; day <= newLast; day++) {
+                days[slot(day)] = loadDay(LocalDate.ofEpochDay(day));
+            }
+            firstDay = newFirst;
+            lastDay = newLast;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cars with (or, for {@code insured == false}, without) an active policy on {@code date},
+     * optionally only those of {@code ownerId}.
+     */
+    public CoverageSetDto query(LocalDate date, Long ownerId, boolean insured) {
+        CompressedBitmap owned = ownerId != null ? ownerCars(ownerId) : null;
+        CompressedBitmap result = null;
+        long day = date.toEpochDay();
+        lock.readLock().lock();
+        try {
+            if (loaded && day >= firstDay && day <= lastDay) {
+                result = combine(days[slot(day)], owned != null ? owned : cars, insured, owned != null);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        boolean precomputed = result != null;
+        if (result == null) {
+            result = queryDatabase(date, owned, insured);
+        }
+
+        List<Long> carIds = new ArrayList<>(result.cardinality());
+        result.forEach(id -> carIds.add((long) id));
+        return new CoverageSetDto(date, ownerId, insured, precomputed, carIds.size(), carIds);
+    }
+
+    // Before commit, so an update's cars are read on the writer's own connection (policy writes for a car are
+    // serialized until commit); the bitmaps change after commit, and the write lock is never held across a query.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPolicyWritten(PolicyWrittenEvent event) {
+        InsurancePolicyDto p = event.policy();
+        if (event.previousCarId() == null) {
+            afterCommit(() -> {
+                lock.writeLock().lock();
+                try {
+                    if (loaded) {
+                        cover(carId(p.carId()), p.startDate(), p.endDate());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            return;
+        }
+        Set<Long> carIds = new HashSet<>(List.of(event.previousCarId(), p.carId()));
+        List<InsurancePolicyDto> policies = policyRepository.findDtosByCarIds(carIds);
+        afterCommit(() -> replaceCars(carIds, policies));
+    }
+
+    // Writes made on other nodes (and, once more, this node's own): re-read the cars, then swap them in.
+    @EventListener
+    public void onCoverageChanged(CoverageChangedEvent event) {
+        if (event.isEverything()) {
+            rebuild();
+            return;
+        }
+        List<InsurancePolicyDto> policies = readOnlyTx.execute(status -> policyRepository.findDtosByCarIds(event.carIds()));
+        replaceCars(event.carIds(), policies);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarWritten(CarWrittenEvent event) {
+        lock.writeLock().lock();
+        try {
+            cars.add(carId(event.carId()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static CompressedBitmap combine(CompressedBitmap day, CompressedBitmap candidates,
+                                            boolean insured, boolean filtered) {
+        if (insured) {
+            return filtered ? day.and(candidates) : day.copy();
+        }
+        return candidates.andNot(day);
+    }
+
+    private CompressedBitmap queryDatabase(LocalDate date, CompressedBitmap owned, boolean insured) {
+        CompressedBitmap all = new CompressedBitmap();
+        CompressedBitmap day = new CompressedBitmap();
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = policyRepository.streamCoveragePeriods(date, date)) {
+                rows.forEach(row -> {
+                    all.add(carId((Long) row[0]));
+                    if (row[2] != null) {
+                        day.add(carId((Long) row[0]));
+                    }
+                });
+            }
+        });
+        return combine(day, owned != null ? owned : all, insured, owned != null);
+    }
+
+    private CompressedBitmap ownerCars(Long ownerId) {
+        return readOnlyTx.execute(status -> {
+            if (!ownerRepository.existsById(ownerId)) {
+                throw new NoSuchElementException("Owner with id " + ownerId + " not found!");
+            }
+            CompressedBitmap owned = new CompressedBitmap();
+            for (Long carId : carRepository.findIdsByOwnerId(ownerId)) {
+                owned.add(carId(carId));
+            }
+            return owned;
+        });
+    }
+
+    private CompressedBitmap loadDay(LocalDate date) {
+        CompressedBitmap day = new CompressedBitmap();
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = policyRepository.streamCoveragePeriods(date, date)) {
+                rows.forEach(row -> {
+                    cars.add(carId((Long) row[0]));
+                    if (row[2] != null) {
+                        day.add(carId((Long) row[0]));
+                    }
+                });
+            }
+        });
+        return day;
+    }
+
+    // Swaps in the given cars' policies, read beforehand; cover() clips them to the current horizon.
+    private void replaceCars(Set<Long> carIds, List<InsurancePolicyDto> policies) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            for (Long carId : carIds) {
+                int id = carId(carId);
+                cars.add(id);
+                for (CompressedBitmap day : days) {
+                    day.remove(id);
+                }
+            }
+            for (InsurancePolicyDto p : policies) {
+                cover(carId(p.carId()), p.startDate(), p.endDate());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void cover(int carId, LocalDate start, LocalDate end) {
+        long from = Math.max(start.toEpochDay(), firstDay);
+        long to = end == null ? lastDay : Math.min(end.toEpochDay(), lastDay);
+        for (long day = from; day <= to; day++) {
+            days[slot(day)].add(carId);
+        }
+    }
+
+    private int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) days.length);
+    }
+
+    private long sizeInBytes() {
+        long bytes = cars.sizeInBytes();
+        for (CompressedBitmap day : days) {
+            bytes += day.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private static int carId(Long id) {
+        return Math.toIntExact(id);
+    }
+}
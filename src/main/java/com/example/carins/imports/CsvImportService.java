@@ -0,0 +1,592 @@
+package com.example.carins.imports;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.Owner;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.CarWrittenEvent;
+import com.example.carins.service.CoverageChangeFeed;
+import com.example.carins.service.PolicyIntervalIndex;
+import com.example.carins.service.PolicyOverlapGuard;
+import com.example.carins.service.PolicyWrittenEvent;
+import com.example.carins.web.dto.CsvImportReportDto;
+import com.example.carins.web.dto.CsvImportReportDto.FileReport;
+import com.example.carins.web.dto.CsvImportReportDto.RowError;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Loads owners, cars and policies from CSV files, in that order:
+ * <pre>
+ * owners.csv:   name,email
+ * cars.csv:     vin,make,model,year_of_manufacture,owner_email
+ * policies.csv: vin,provider,start_date,end_date
+ * </pre>
+ * Cars reference owners by email and policies reference cars by VIN. Keys created by the import are
+ * kept in memory; keys it has not seen are looked up in the database once per batch. Rows are
+ * written in batches of {@code batch-size}, each in its own transaction as one JDBC batch, so
+ * memory stays bounded by the batch size plus the key maps. Rejected rows never stop the load.
+ */
+@Service
+public class CsvImportService {
+    private static final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+
+    static final List<String> OWNER_COLUMNS = List.of("name", "email");
+    static final List<String> CAR_COLUMNS = List.of("vin", "make", "model", "year_of_manufacture", "owner_email");
+    static final List<String> POLICY_COLUMNS = List.of("vin", "provider", "start_date", "end_date");
+
+    private final OwnerRepository ownerRepository;
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final EntityManager em;
+    private final Validator validator;
+    private final PolicyIntervalIndex policyIndex;
+    private final CoverageChangeFeed coverageChanges;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public CsvImportService(OwnerRepository ownerRepository,
+                            CarRepository carRepository,
+                            InsurancePolicyRepository policyRepository,
+                            EntityManager em,
+                            Validator validator,
+                            PolicyIntervalIndex policyIndex,
+                            CoverageChangeFeed coverageChanges,
+                            ApplicationEventPublisher events,
+                            PlatformTransactionManager txManager,
+                            @Value("${carins.import.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("carins.import.batch-size must be positive");
+        }
+        this.ownerRepository = ownerRepository;
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+        this.em = em;
+        this.validator = validator;
+        this.policyIndex = policyIndex;
+        this.coverageChanges = coverageChanges;
+        this.events = events;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports whichever of the files are given; {@code null} skips that kind.
+     */
+    public CsvImportReportDto importFiles(Path owners, Path cars, Path policies) throws IOException {
+        long started = System.nanoTime();
+        Keys keys = new Keys();
+        List<FileReport> reports = new ArrayList<>();
+        if (owners != null) {
+            reports.add(load(owners, new OwnerLoader(keys)));
+        }
+        if (cars != null) {
+            reports.add(load(cars, new CarLoader(keys)));
+        }
+        if (policies != null) {
+            reports.add(load(policies, new PolicyLoader(keys)));
+        }
+        return new CsvImportReportDto(List.copyOf(reports), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private <T> FileReport load(Path file, Loader<T> loader) throws IOException {
+        long started = System.nanoTime();
+        Tally tally = loader.tally;
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+
+        try (CsvRecordReader csv = new CsvRecordReader(file)) {
+            if (!csv.next() || !hasHeader(csv, loader.columns)) {
+                throw new IllegalArgumentException(file.getFileName() + " must start with the header "
+                        + String.join(",", loader.columns));
+            }
+            while (csv.next()) {
+                tally.rows++;
+                long line = csv.lineNumber();
+                if (csv.isMalformed() || csv.fieldCount() != loader.columns.size()) {
+                    tally.reject(line, "Expected " + loader.columns.size() + " columns: " + String.join(",", loader.columns));
+                    continue;
+                }
+                try {
+                    batch.add(loader.parse(line, csv));
+                } catch (IllegalArgumentException ex) {
+                    tally.reject(line, ex.getMessage());
+                    continue;
+                }
+                if (batch.size() == batchSize) {
+                    loader.flush(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            loader.flush(batch);
+        }
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        log.info("CSV import of {} {}: {} rows, {} created, {} rejected in {} ms",
+                loader.kind, file.getFileName(), tally.rows, tally.created, tally.rejected, millis);
+        // Parse errors are found before batch errors; report them in file order.
+        tally.errors.sort(Comparator.comparingLong(RowError::line));
+        return new FileReport(loader.kind, file.getFileName().toString(), tally.rows, tally.created, tally.rejected,
+                millis, tally.rows * 1000 / Math.max(1, millis), List.copyOf(tally.errors),
+                tally.rejected > tally.errors.size());
+    }
+
+    private static boolean hasHeader(CsvRecordReader csv, List<String> columns) {
+        if (csv.fieldCount() != columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).equalsIgnoreCase(csv.string(i).trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String violations(Object entity) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        List<String> messages = new ArrayList<>();
+        for (ConstraintViolation<Object> v : violations) {
+            messages.add(v.getPropertyPath() + " " + v.getMessage());
+        }
+        messages.sort(null);
+        return String.join("; ", messages);
+    }
+
+    private static Map<String, Long> toKeyMap(List<Object[]> idKeyPairs) {
+        Map<String, Long> map = new HashMap<>();
+        for (Object[] row : idKeyPairs) {
+            map.put((String) row[1], (Long) row[0]);
+        }
+        return map;
+    }
+
+    private final class OwnerLoader extends Loader<Owner> {
+        OwnerLoader(Keys keys) {
+            super("owners", OWNER_COLUMNS, keys);
+        }
+
+        @Override
+        Pending<Owner> parse(long line, CsvRecordReader csv) {
+            Owner owner = new Owner(csv.trimmedOrNull(0), csv.trimmedOrNull(1));
+            if (owner.getEmail() == null) {
+                throw new IllegalArgumentException("email is required");
+            }
+            String invalid = violations(owner);
+            if (invalid != null) {
+                throw new IllegalArgumentException(invalid);
+            }
+            return new Pending<>(line, owner, owner.getEmail());
+        }
+
+        @Override
+        void flush(List<Pending<Owner>> batch) {
+            Set<String> emails = new HashSet<>();
+            for (Pending<Owner> p : batch) {
+                emails.add(p.key());
+            }
+            Map<String, Long> existing = toKeyMap(ownerRepository.findIdsByEmails(emails));
+
+            List<Pending<Owner>> fresh = new ArrayList<>(batch.size());
+            Set<String> seen = new HashSet<>();
+            for (Pending<Owner> p : batch) {
+                Long existingId = existing.get(p.key());
+                if (existingId != null) {
+                    // Cars in this import may still refer to the stored owner.
+                    keys.emails.putIfAbsent(p.key(), existingId);
+                    tally.reject(p.line(), "Owner with email " + p.key() + " already exists");
+                } else if (keys.emails.containsKey(p.key()) || !seen.add(p.key())) {
+                    tally.reject(p.line(), "Duplicate email " + p.key() + " in file");
+                } else {
+                    fresh.add(p);
+                }
+            }
+            persist(fresh);
+        }
+
+        @Override
+        void committed(Owner owner) {
+            keys.emails.put(owner.getEmail(), owner.getId());
+        }
+    }
+
+    private final class CarLoader extends Loader<Car> {
+        CarLoader(Keys keys) {
+            super("cars", CAR_COLUMNS, keys);
+        }
+
+        @Override
+        Pending<Car> parse(long line, CsvRecordReader csv) {
+            int year;
+            try {
+                year = csv.parseInt(3);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("year_of_manufacture: " + ex.getMessage());
+            }
+            String ownerEmail = Owner.normalizeEmail(csv.trimmedOrNull(4));
+            if (ownerEmail == null) {
+                throw new IllegalArgumentException("owner_email is required");
+            }
+            Car car = new Car(csv.trimmedOrNull(0), csv.trimmedOrNull(1), csv.trimmedOrNull(2), year, null);
+            Set<ConstraintViolation<Car>> invalid = validator.validateProperty(car, "vin");
+            if (!invalid.isEmpty()) {
+                throw new IllegalArgumentException("vin " + invalid.iterator().next().getMessage());
+            }
+            return new Pending<>(line, car, ownerEmail);
+        }
+
+        @Override
+        void flush(List<Pending<Car>> batch) {
+            keys.resolveEmails(batch);
+            Set<String> vins = new HashSet<>();
+            for (Pending<Car> p : batch) {
+                vins.add(p.entity().getVin());
+            }
+            Map<String, Long> existing = toKeyMap(carRepository.findIdsByVins(vins));
+
+            List<Pending<Car>> fresh = new ArrayList<>(batch.size());
+            Set<String> seen = new HashSet<>();
+            for (Pending<Car> p : batch) {
+                String vin = p.entity().getVin();
+                Long ownerId = keys.emails.get(p.key());
+                Long existingId = existing.get(vin);
+                if (ownerId == null) {
+                    tally.reject(p.line(), "Unknown owner email " + p.key());
+                } else if (existingId != null) {
+                    // Policies in this import may still refer to the stored car.
+                    keys.vins.putIfAbsent(vin, existingId);
+                    tally.reject(p.line(), "Car with VIN " + vin + " already exists");
+                } else if (keys.vins.containsKey(vin) || !seen.add(vin)) {
+                    tally.reject(p.line(), "Duplicate VIN " + vin + " in file");
+                } else {
+                    fresh.add(p.resolvedTo(ownerId));
+                }
+            }
+            persist(fresh);
+        }
+
+        @Override
+        void attach(Pending<Car> p) {
+            p.entity().setOwner(em.getReference(Owner.class, p.refId()));
+        }
+
+        @Override
+        void flushed(Car car) {
+            policyIndex.registerCar(car.getId());
+            events.publishEvent(new CarWrittenEvent(car.getId()));
+        }
+
+        @Override
+        Long coverageCarId(Car car) {
+            return car.getId();
+        }
+
+        @Override
+        void committed(Car car) {
+            keys.vins.put(car.getVin(), car.getId());
+        }
+    }
+
+    private final class PolicyLoader extends Loader<InsurancePolicy> {
+        PolicyLoader(Keys keys) {
+            super("policies", POLICY_COLUMNS, keys);
+        }
+
+        @Override
+        Pending<InsurancePolicy> parse(long line, CsvRecordReader csv) {
+            String vin = Car.normalizeVin(csv.trimmedOrNull(0));
+            if (vin == null) {
+                throw new IllegalArgumentException("vin is required");
+            }
+            InsurancePolicy policy = new InsurancePolicy(null, csv.trimmedOrNull(1), date(csv, 2), date(csv, 3));
+            if (policy.getStartDate() == null || policy.getEndDate() == null) {
+                throw new IllegalArgumentException("start_date and end_date are required");
+            }
+            if (policy.getStartDate().isAfter(policy.getEndDate())) {
+                throw new IllegalArgumentException("Start date must not be after end date");
+            }
+            return new Pending<>(line, policy, vin);
+        }
+
+        @Override
+        void flush(List<Pending<InsurancePolicy>> batch) {
+            keys.resolveVins(batch);
+            List<Pending<InsurancePolicy>> resolved = new ArrayList<>(batch.size());
+            for (Pending<InsurancePolicy> p : batch) {
+                Long carId = keys.vins.get(p.key());
+                if (carId == null) {
+                    tally.reject(p.line(), "Unknown car VIN " + p.key());
+                } else {
+                    resolved.add(p.resolvedTo(carId));
+                }
+            }
+            persist(resolved);
+        }
+
+        // Same rule as InsurancePolicyService: lock the batch's cars, then drop rows overlapping a stored
+        // policy or an earlier row of the batch.
+        @Override
+        List<Pending<InsurancePolicy>> admit(List<Pending<InsurancePolicy>> rows, List<RowError> rejected) {
+            Set<Long> carIds = new TreeSet<>();
+            LocalDate from = LocalDate.MAX;
+            LocalDate to = LocalDate.MIN;
+            for (Pending<InsurancePolicy> p : rows) {
+                carIds.add(p.refId());
+                if (p.entity().getStartDate().isBefore(from)) {
+                    from = p.entity().getStartDate();
+                }
+                if (p.entity().getEndDate().isAfter(to)) {
+                    to = p.entity().getEndDate();
+                }
+            }
+            carRepository.lockAllById(carIds);
+            Map<Long, List<Taken>> taken = new HashMap<>();
+            for (InsurancePolicyDto d : policyRepository.findDtosForCarsOverlapping(carIds, from, to)) {
+                taken.computeIfAbsent(d.carId(), k -> new ArrayList<>()).add(new Taken(d, 0));
+            }
+
+            List<Pending<InsurancePolicy>> admitted = new ArrayList<>(rows.size());
+            for (Pending<InsurancePolicy> p : rows) {
+                InsurancePolicy policy = p.entity();
+                List<Taken> carTaken = taken.computeIfAbsent(p.refId(), k -> new ArrayList<>());
+                Taken clash = null;
+                for (Taken t : carTaken) {
+                    if (t.overlaps(policy.getStartDate(), policy.getEndDate())) {
+                        clash = t;
+                        break;
+                    }
+                }
+                if (clash == null) {
+                    carTaken.add(new Taken(null, p.line(), policy.getStartDate(), policy.getEndDate()));
+                    admitted.add(p);
+                } else if (clash.stored() != null) {
+                    rejected.add(new RowError(p.line(), PolicyOverlapGuard.overlapMessage(p.refId(), clash.stored())));
+                } else {
+                    rejected.add(new RowError(p.line(), "Policy overlaps the policy on line " + clash.line()
+                            + " for VIN " + p.key()));
+                }
+            }
+            return admitted;
+        }
+
+        @Override
+        void attach(Pending<InsurancePolicy> p) {
+            p.entity().setCar(em.getReference(Car.class, p.refId()));
+        }
+
+        // Same bookkeeping as InsurancePolicyService.create, so the index and expiry timer see imported policies.
+        @Override
+        void flushed(InsurancePolicy p) {
+            InsurancePolicyDto dto = new InsurancePolicyDto(p.getId(), p.getCar().getId(),
+                    p.getProvider(), p.getStartDate(), p.getEndDate());
+            policyIndex.upsertPolicy(null, dto);
+            events.publishEvent(new PolicyWrittenEvent(null, dto));
+        }
+
+        @Override
+        Long coverageCarId(InsurancePolicy p) {
+            return p.getCar().getId();
+        }
+
+        private static LocalDate date(CsvRecordReader csv, int field) {
+            try {
+                return csv.parseDate(field);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(POLICY_COLUMNS.get(field) + ": " + ex.getMessage());
+            }
+        }
+
+        /**
+         * A period already taken on a car: a stored policy, or a row admitted earlier in the batch.
+         */
+        private record Taken(InsurancePolicyDto stored, long line, LocalDate start, LocalDate end) {
+            Taken(InsurancePolicyDto stored, long line) {
+                this(stored, line, stored.startDate(), stored.endDate());
+            }
+
+            boolean overlaps(LocalDate from, LocalDate to) {
+                return !start.isAfter(to) && (end == null || !end.isBefore(from));
+            }
+        }
+    }
+
+    /**
+     * Parses one kind of row and writes batches of them. Each batch is one transaction and one JDBC
+     * batch: {@link #admit} runs first inside the transaction and may turn rows away, {@link #attach}
+     * runs per row, {@link #flushed} once ids are assigned, and {@link #committed} after the commit.
+     * A failing batch is rolled back and all its rows are rejected.
+     */
+    private abstract class Loader<T> {
+        final String kind;
+        final List<String> columns;
+        final Keys keys;
+        final Tally tally = new Tally();
+
+        Loader(String kind, List<String> columns, Keys keys) {
+            this.kind = kind;
+            this.columns = columns;
+            this.keys = keys;
+        }
+
+        abstract Pending<T> parse(long line, CsvRecordReader csv);
+
+        abstract void flush(List<Pending<T>> batch);
+
+        List<Pending<T>> admit(List<Pending<T>> rows, List<RowError> rejected) {
+            return rows;
+        }
+
+        void attach(Pending<T> row) {}
+
+        void flushed(T entity) {}
+
+        // The car whose coverage the entity changes, if any; recorded once per car and batch.
+        Long coverageCarId(T entity) {
+            return null;
+        }
+
+        void committed(T entity) {}
+
+        final void persist(List<Pending<T>> rows) {
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<RowError> rejected = new ArrayList<>();
+            List<Pending<T>> admitted;
+            try {
+                admitted = tx.execute(status -> {
+                    List<Pending<T>> accepted = admit(rows, rejected);
+                    em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                    for (Pending<T> r : accepted) {
+                        attach(r);
+                        em.persist(r.entity());
+                    }
+                    em.flush();
+                    Set<Long> coverageCars = new LinkedHashSet<>();
+                    for (Pending<T> r : accepted) {
+                        flushed(r.entity());
+                        Long carId = coverageCarId(r.entity());
+                        if (carId != null) {
+                            coverageCars.add(carId);
+                        }
+                    }
+                    if (!coverageCars.isEmpty()) {
+                        coverageChanges.record(coverageCars.toArray(Long[]::new));
+                        em.flush();
+                    }
+                    em.clear();
+                    return accepted;
+                });
+            } catch (DataAccessException ex) {
+                log.warn("CSV import of {} failed for the batch starting at line {}", kind, rows.get(0).line(), ex);
+                String message = "Batch failed to persist: " + ex.getMostSpecificCause().getMessage();
+                for (Pending<T> r : rows) {
+                    tally.reject(r.line(), message);
+                }
+                return;
+            }
+            for (RowError e : rejected) {
+                tally.reject(e.line(), e.error());
+            }
+            for (Pending<T> r : admitted) {
+                committed(r.entity());
+            }
+            tally.created += admitted.size();
+        }
+    }
+
+    /**
+     * A parsed row waiting for its batch. {@code key} is the row's own key (owners) or the key it refers to,
+     * {@code refId} the id that key resolved to.
+     */
+    private record Pending<T>(long line, T entity, String key, Long refId) {
+        Pending(long line, T entity, String key) {
+            this(line, entity, key, null);
+        }
+
+        Pending<T> resolvedTo(Long id) {
+            return new Pending<>(line, entity, key, id);
+        }
+    }
+
+    /**
+     * Natural key to id, for everything created or referenced by this import.
+     */
+    private final class Keys {
+        final Map<String, Long> emails = new HashMap<>();
+        final Map<String, Long> vins = new HashMap<>();
+
+        void resolveEmails(Collection<? extends Pending<?>> batch) {
+            Set<String> missing = missing(batch, emails);
+            if (!missing.isEmpty()) {
+                emails.putAll(toKeyMap(ownerRepository.findIdsByEmails(missing)));
+            }
+        }
+
+        void resolveVins(Collection<? extends Pending<?>> batch) {
+            Set<String> missing = missing(batch, vins);
+            if (!missing.isEmpty()) {
+                vins.putAll(toKeyMap(carRepository.findIdsByVins(missing)));
+            }
+        }
+
+    }
+
+    private static Set<String> missing(Collection<? extends Pending<?>> batch, Map<String, Long> known) {
+        Set<String> missing = new HashSet<>();
+        for (Pending<?> p : batch) {
+            if (!known.containsKey(p.key())) {
+                missing.add(p.key());
+            }
+        }
+        return missing;
+    }
+
+    private static final class Tally {
+        long rows;
+        long created;
+        long rejected;
+        final List<RowError> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.carins.imports;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Forward-only reader for RFC 4180 style CSV files, read through read-only memory-mapped windows.
+ * A record's fields are kept as byte ranges of the mapped window; nothing is allocated until a field
+ * is asked for as a {@link String}, and numbers and ISO dates are parsed straight from the bytes.
+ * Quoted fields may contain commas, line breaks and doubled quotes. Blank lines are skipped.
+ * Not thread-safe.
+ */
+public final class CsvRecordReader implements AutoCloseable {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowBytes;
+
+    private MappedByteBuffer buf;
+    private long bufStart;
+    private int pos;
+
+    private long line;
+    private long nextLine = 1;
+    private int fields;
+    private boolean malformed;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    public CsvRecordReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_BYTES);
+    }
+
+    public CsvRecordReader(Path file, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+        map(0);
+    }
+
+    /**
+     * Advances to the next non-blank record; false at the end of the file.
+     * A record must fit in one window.
+     */
+    public boolean next() throws IOException {
+        while (bufStart + pos < size) {
+            if (!scan()) {
+                if (pos == 0) {
+                    throw new IOException("Record at line " + nextLine + " is longer than " + windowBytes + " bytes");
+                }
+                map(bufStart + pos);
+                continue;
+            }
+            if (fields > 1 || !isBlank(0) || malformed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 1-based line on which the current record starts. */
+    public long lineNumber() {
+        return line;
+    }
+
+    public int fieldCount() {
+        return fields;
+    }
+
+    /** True when a quoted field was followed by stray characters; the field values are then unreliable. */
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    public boolean isBlank(int field) {
+        for (int p = starts[field]; p < ends[field]; p++) {
+            if (!isSpace(buf.get(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String string(int field) {
+        int len = copy(field);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** The field trimmed, or {@code null} when it is blank. */
+    public String trimmedOrNull(int field) {
+        return isBlank(field) ? null : string(field).trim();
+    }
+
+    public int parseInt(int field) {
+        int p = firstNonSpace(field);
+        int end = lastNonSpace(field);
+        if (p >= end) {
+            throw new IllegalArgumentException("expected a number");
+        }
+        boolean negative = buf.get(p) == '-';
+        if (negative || buf.get(p) == '+') {
+            p++;
+        }
+        if (p >= end || end - p > 9) {
+            throw new IllegalArgumentException("expected a number");
+        }
+        int value = 0;
+        for (; p < end; p++) {
+            int digit = buf.get(p) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("expected a number");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /** Parses an ISO {@code yyyy-MM-dd} date; {@code null} when the field is blank. */
+    public LocalDate parseDate(int field) {
+        int p = firstNonSpace(field);
+        int end = lastNonSpace(field);
+        if (p >= end) {
+            return null;
+        }
+        if (end - p != 10 || buf.get(p + 4) != '-' || buf.get(p + 7) != '-') {
+            throw new IllegalArgumentException("expected a date as YYYY-MM-DD");
+        }
+        try {
+            return LocalDate.of(digits(p, 4), digits(p + 5, 2), digits(p + 8, 2));
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("expected a date as YYYY-MM-DD");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long offset) throws IOException {
+        bufStart = offset;
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowBytes, size - offset));
+        pos = 0;
+    }
+
+    // Splits the record starting at pos into fields. False when the window ends inside the record,
+    // unless the window reaches the end of the file.
+    private boolean scan() {
+        int limit = buf.limit();
+        boolean lastWindow = bufStart + limit == size;
+        int p = pos;
+        int lineBreaks = 0;
+        fields = 0;
+        malformed = false;
+
+        while (true) {
+            if (fields == starts.length) {
+                grow();
+            }
+            if (p < limit && buf.get(p) == '"') {
+                int s = ++p;
+                boolean esc = false;
+                while (true) {
+                    if (p >= limit) {
+                        if (!lastWindow) {
+                            return false;
+                        }
+                        malformed = true;
+                        break;
+                    }
+                    byte b = buf.get(p);
+                    if (b == '"') {
+                        if (p + 1 >= limit && !lastWindow) {
+                            return false;
+                        }
+                        if (p + 1 < limit && buf.get(p + 1) == '"') {
+                            esc = true;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (b == '\n') {
+                        lineBreaks++;
+                    }
+                    p++;
+                }
+                record(s, p, esc);
+                p++;
+                // Anything between the closing quote and the next separator is an error.
+                while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') {
+                    if (buf.get(p) != '\r') {
+                        malformed = true;
+                    }
+                    p++;
+                }
+            } else {
+                int s = p;
+                while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') {
+                    p++;
+                }
+                record(s, p > s && buf.get(p - 1) == '\r' ? p - 1 : p, false);
+            }
+
+            if (p >= limit) {
+                if (!lastWindow) {
+                    return false;
+                }
+                pos = p;
+                break;
+            }
+            if (buf.get(p) == '\n') {
+                pos = p + 1;
+                break;
+            }
+            p++;
+        }
+        line = nextLine;
+        nextLine += 1 + lineBreaks;
+        return true;
+    }
+
+    private void record(int start, int end, boolean esc) {
+        starts[fields] = start;
+        ends[fields] = end;
+        escaped[fields] = esc;
+        fields++;
+    }
+
+    private void grow() {
+        int n = starts.length * 2;
+        starts = Arrays.copyOf(starts, n);
+        ends = Arrays.copyOf(ends, n);
+        escaped = Arrays.copyOf(escaped, n);
+    }
+
+    // Copies the field into scratch, collapsing doubled quotes; returns the length.
+    private int copy(int field) {
+        int len = ends[field] - starts[field];
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+        }
+        buf.get(starts[field], scratch, 0, len);
+        if (!escaped[field]) {
+            return len;
+        }
+        int w = 0;
+        for (int r = 0; r < len; r++) {
+            scratch[w++] = scratch[r];
+            if (scratch[r] == '"') {
+                r++;
+            }
+        }
+        return w;
+    }
+
+    private int firstNonSpace(int field) {
+        int p = starts[field];
+        while (p < ends[field] && isSpace(buf.get(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private int lastNonSpace(int field) {
+        int p = ends[field];
+        while (p > starts[field] && isSpace(buf.get(p - 1))) {
+            p--;
+        }
+        return p;
+    }
+
+    private int digits(int p, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buf.get(p + i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("expected a date as YYYY-MM-DD");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.carins.jobs;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Outcome of one {@link PolicyExpiryScheduler} run, with a timing entry per committed chunk.
+ * In set-based mode (chunk size 0) a day range is a single chunk.
+ */
+public record ExpiryRunReport(
+        Instant startedAt,
+        LocalDate from,
+        LocalDate to,
+        int chunkSize,
+        int recorded,
+        long totalMillis,
+        List<ChunkTiming> chunks
+) {
+    public record ChunkTiming(LocalDate endDate, long lastPolicyId, int size, long millis) {}
+}
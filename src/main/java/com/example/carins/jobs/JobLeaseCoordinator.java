@@ -0,0 +1,173 @@
+package com.example.carins.jobs;
+
+import com.example.carins.model.JobLease;
+import com.example.carins.repo.JobLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster-wide mutual exclusion for scheduled jobs, backed by the {@code job_lease} table.
+ * A lease is taken with a conditional UPDATE that only succeeds once the previous holder's lease
+ * has run out, renewed by a heartbeat while held, and released on close. If the holding node dies
+ * the lease simply expires and the next node to try takes it over.
+ */
+@Component
+public class JobLeaseCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(JobLeaseCoordinator.class);
+
+    private final JobLeaseRepository leaseRepository;
+    private final TransactionTemplate requiresNew;
+    private final String nodeId;
+    private final Duration ttl;
+    private final ScheduledExecutorService heartbeat;
+
+    public JobLeaseCoordinator(JobLeaseRepository leaseRepository,
+                               PlatformTransactionManager txManager,
+                               @Value("${carins.jobs.node-id:}") String nodeId,
+                               @Value("${carins.jobs.lease-ttl:PT5M}") Duration ttl) {
+        this.leaseRepository = leaseRepository;
+        this.requiresNew = new TransactionTemplate(txManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.ttl = ttl;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Tries to take the lease for {@code jobName}; empty if another run (on any node) holds it.
+     */
+    public Optional<Lease> tryAcquire(String jobName) {
+        String token = nodeId + "/" + UUID.randomUUID();
+        Instant now = Instant.now();
+        Instant until = now.plus(ttl);
+
+        boolean acquired = requiresNew.execute(status ->
+                leaseRepository.takeOverExpired(jobName, token, nodeId, until, now) == 1);
+        if (!acquired) {
+            acquired = tryCreate(jobName, token, until, now);
+        }
+        if (!acquired) {
+            return Optional.empty();
+        }
+
+        Lease lease = new Lease(jobName, token);
+        long period = Math.max(1, ttl.toMillis() / 3);
+        lease.heartbeat = heartbeat.scheduleAtFixedRate(lease::renew, period, period, TimeUnit.MILLISECONDS);
+        log.debug("Node {} acquired lease {}", nodeId, jobName);
+        return Optional.of(lease);
+    }
+
+    private boolean tryCreate(String jobName, String token, Instant until, Instant now) {
+        try {
+            return requiresNew.execute(status -> {
+                if (leaseRepository.existsById(jobName)) {
+                    return false;
+                }
+                leaseRepository.saveAndFlush(new JobLease(jobName, token, nodeId, until, now));
+                return true;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Another node created the row first.
+            return false;
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * A held lease. Check {@link #isHeld()} between units of work; it turns false as soon as a renewal
+     * finds the lease taken over, e.g. after this node stalled for longer than the TTL.
+     */
+    public final class Lease implements AutoCloseable {
+        private final String jobName;
+        private final String token;
+        private volatile boolean held = true;
+        private volatile ScheduledFuture<?> heartbeat;
+
+        private Lease(String jobName, String token) {
+            this.jobName = jobName;
+            this.token = token;
+        }
+
+        public String jobName() {
+            return jobName;
+        }
+
+        public boolean isHeld() {
+            return held;
+        }
+
+        public boolean renew() {
+            if (!held) {
+                return false;
+            }
+            try {
+                Instant until = Instant.now().plus(ttl);
+                held = requiresNew.execute(status -> leaseRepository.extend(jobName, token, until) == 1);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to renew lease {}", jobName, ex);
+                return held;
+            }
+            if (!held) {
+                log.warn("Node {} lost lease {}", nodeId, jobName);
+                cancelHeartbeat();
+            }
+            return held;
+        }
+
+        @Override
+        public void close() {
+            cancelHeartbeat();
+            if (held) {
+                held = false;
+                requiresNew.executeWithoutResult(status -> leaseRepository.extend(jobName, token, Instant.EPOCH));
+            }
+        }
+
+        private void cancelHeartbeat() {
+            ScheduledFuture<?> h = heartbeat;
+            if (h != null) {
+                h.cancel(false);
+            }
+        }
+    }
+}
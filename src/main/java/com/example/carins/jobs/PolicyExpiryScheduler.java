@@ -1,44 +1,202 @@
 package com.example.carins.jobs;
 
-import com.example.carins.model.InsurancePolicy;
-import com.example.carins.model.PolicyExpiryLog;
-import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.model.JobWatermark;
+import com.example.carins.repo.JobWatermarkRepository;
 import com.example.carins.repo.PolicyExpiryLogRepository;
+import com.example.carins.web.dto.InsurancePolicyDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 @Component
 public class PolicyExpiryScheduler {
     private static final Logger log = LoggerFactory.getLogger(PolicyExpiryScheduler.class);
 
-    private final InsurancePolicyRepository policyRepository;
+    static final String JOB_NAME = "policy-expiry";
+
     private final PolicyExpiryLogRepository logRepository;
+    private final JobWatermarkRepository watermarkRepository;
+    private final TransactionTemplate tx;
+    private final JobLeaseCoordinator leases;
+    private final int chunkSize;
+
+    private volatile ExpiryRunReport lastRun;
 
-    public PolicyExpiryScheduler(InsurancePolicyRepository policyRepo, PolicyExpiryLogRepository logRepo) {
-        this.policyRepository = policyRepo;
+    public PolicyExpiryScheduler(PolicyExpiryLogRepository logRepo,
+                                 JobWatermarkRepository watermarkRepo,
+                                 PlatformTransactionManager txManager,
+                                 JobLeaseCoordinator leases,
+                                 @Value("${carins.expiry.chunk-size:0}") int chunkSize) {
         this.logRepository = logRepo;
+        this.watermarkRepository = watermarkRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.leases = leases;
+        this.chunkSize = chunkSize;
     }
 
-    @Scheduled(cron = "1 0 0 * * *")
-    @Transactional
+    /**
+     * Logs every policy that expired since the last completed run, up to and including yesterday.
+     * Days missed while the service was down are picked up from the persisted watermark.
+     * Only the node holding the job lease runs; the others skip until their next trigger.
+     */
+    @Scheduled(cron = "${carins.expiry.cron:1 0 0 * * *}")
     public void logRecentlyExpiredPolicies() {
-        LocalDate targetEndDate = LocalDate.now().minusDays(1);
+        Optional<JobLeaseCoordinator.Lease> lease = leases.tryAcquire(JOB_NAME);
+        if (lease.isEmpty()) {
+            log.debug("Skipping policy expiry run, lease {} is held by another run", JOB_NAME);
+            return;
+        }
+        try (JobLeaseCoordinator.Lease held = lease.get()) {
+            run(LocalDate.now().minusDays(1), chunkSize, held::isHeld);
+        }
+    }
+
+    public ExpiryRunReport run(LocalDate to, int chunkSize) {
+        return run(to, chunkSize, () -> true);
+    }
+
+    /**
+     * Processes expiries up to {@code to}. With {@code chunkSize <= 0} the whole range is one
+     * INSERT ... SELECT in one transaction; otherwise each chunk of policies commits on its own
+     * together with a checkpoint, and a restarted run resumes after the last committed chunk.
+     * Chunked runs stop early once {@code stillOwner} turns false.
+     */
+    public ExpiryRunReport run(LocalDate to, int chunkSize, BooleanSupplier stillOwner) {
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+        List<ExpiryRunReport.ChunkTiming> chunks = new ArrayList<>();
+
+        JobWatermark start = tx.execute(status -> loadWatermark(to));
+        boolean resuming = start.getCheckpointDate() != null;
+        LocalDate from = resuming ? start.getCheckpointDate() : start.getLastProcessedDate().plusDays(1);
+        long afterId = resuming ? start.getCheckpointPolicyId() : 0L;
+
+        if (from.isAfter(to)) {
+            return new ExpiryRunReport(startedAt, from, to, chunkSize, 0, 0, List.of());
+        }
+        int recorded = chunkSize <= 0
+                ? tx.execute(status -> runSetBased(from, to, chunks))
+                : runChunked(from, afterId, to, chunkSize, chunks, stillOwner);
+
+        ExpiryRunReport report = new ExpiryRunReport(startedAt, from, to, chunkSize, recorded,
+                (System.nanoTime() - started) / 1_000_000, List.copyOf(chunks));
+        lastRun = report;
+        log.info("Policy expiry run {}..{} recorded {} policies in {} chunks, {} ms",
+                from, to, recorded, chunks.size(), report.totalMillis());
+        return report;
+    }
+
+    /**
+     * Records the given policies as expired, skipping any already logged. Used by {@link PolicyExpiryTimer}.
+     */
+    public int recordExpired(Collection<Long> policyIds) {
+        return tx.execute(status -> {
+            List<InsurancePolicyDto> expired = logRepository.findUnloggedByPolicyIds(policyIds);
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            logRepository.insertUnloggedByPolicyIds(expired.stream().map(InsurancePolicyDto::id).toList());
+            for (InsurancePolicyDto p : expired) {
+                log.info("Policy {} for car {} expired on {}", p.id(), p.carId(), p.endDate());
+            }
+            return expired.size();
+        });
+    }
+
+    public Optional<ExpiryRunReport> lastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    private int runSetBased(LocalDate from, LocalDate to, List<ExpiryRunReport.ChunkTiming> chunks) {
+        long started = System.nanoTime();
+        List<InsurancePolicyDto> expired = logRepository.findUnloggedExpiredBetween(from, to);
+        int inserted = logRepository.insertUnloggedExpiredBetween(from, to);
+
+        for (InsurancePolicyDto p : expired) {
+            log.info("Policy {} for car {} expired on {}", p.id(), p.carId(), p.endDate());
+        }
+        if (inserted != expired.size()) {
+            log.warn("Expected to record {} expired policies between {} and {} but recorded {}",
+                    expired.size(), from, to, inserted);
+        }
+
+        JobWatermark watermark = loadWatermark(to);
+        watermark.completeDay(to);
+        watermarkRepository.save(watermark);
+
+        long lastId = expired.isEmpty() ? 0L : expired.get(expired.size() - 1).id();
+        chunks.add(new ExpiryRunReport.ChunkTiming(to, lastId, inserted, (System.nanoTime() - started) / 1_000_000));
+        return inserted;
+    }
+
+    private int runChunked(LocalDate from, long afterId, LocalDate to, int size,
+                           List<ExpiryRunReport.ChunkTiming> chunks, BooleanSupplier stillOwner) {
+        LocalDate day = from;
+        int recorded = 0;
 
-        List<InsurancePolicy> targetInsurances = policyRepository.findByEndDate(targetEndDate);
+        while (!day.isAfter(to)) {
+            if (!stillOwner.getAsBoolean()) {
+                log.warn("Policy expiry lease lost, stopping at {} after policy {}; the next owner resumes there", day, afterId);
+                break;
+            }
+            final LocalDate endDate = day;
+            final long after = afterId;
+            long started = System.nanoTime();
 
-        for (InsurancePolicy p : targetInsurances) {
-            if (!logRepository.existsByPolicyId(p.getId())) {
-                Long carId = (p.getCar() != null ? p.getCar().getId() : null);
-                log.info("Policy {} for car {} expired on {}", p.getId(), carId, p.getEndDate());
+            List<InsurancePolicyDto> chunk = tx.execute(status -> processChunk(endDate, after, size, to));
+            if (!chunk.isEmpty()) {
+                long lastId = chunk.get(chunk.size() - 1).id();
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                chunks.add(new ExpiryRunReport.ChunkTiming(endDate, lastId, chunk.size(), millis));
+                log.debug("Expiry chunk for {} after policy {}: {} policies in {} ms", endDate, after, chunk.size(), millis);
+                recorded += chunk.size();
+                afterId = lastId;
+            }
+            if (chunk.size() < size) {
+                day = day.plusDays(1);
+                afterId = 0L;
+            }
+        }
+        return recorded;
+    }
 
-                logRepository.save(new PolicyExpiryLog(p));
+    // One transaction: log lines, inserts and the checkpoint commit (or roll back) together.
+    // A short chunk means the day is exhausted, so it also completes the day.
+    private List<InsurancePolicyDto> processChunk(LocalDate endDate, long afterId, int size, LocalDate to) {
+        JobWatermark watermark = loadWatermark(to);
+        List<InsurancePolicyDto> chunk = logRepository.findUnloggedExpiredOnAfter(endDate, afterId, Limit.of(size));
+
+        if (!chunk.isEmpty()) {
+            logRepository.insertUnloggedByPolicyIds(chunk.stream().map(InsurancePolicyDto::id).toList());
+            for (InsurancePolicyDto p : chunk) {
+                log.info("Policy {} for car {} expired on {}", p.id(), p.carId(), p.endDate());
             }
         }
+        if (chunk.size() < size) {
+            watermark.completeDay(endDate);
+        } else {
+            watermark.checkpoint(endDate, chunk.get(chunk.size() - 1).id());
+        }
+        watermarkRepository.save(watermark);
+        return chunk;
+    }
+
+    // Without a watermark the first run covers `to` only.
+    private JobWatermark loadWatermark(LocalDate to) {
+        return watermarkRepository.findById(JOB_NAME)
+                .orElseGet(() -> new JobWatermark(JOB_NAME, to.minusDays(1)));
     }
 }
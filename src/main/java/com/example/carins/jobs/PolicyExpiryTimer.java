@@ -0,0 +1,220 @@
+package com.example.carins.jobs;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.service.PolicyWrittenEvent;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event-driven expiry handling. Policies ending within the next {@code horizon-days} are loaded once
+ * into a {@link DelayQueue} keyed on the midnight after their end date, and kept current from
+ * {@link PolicyWrittenEvent}s. Each midnight a refill tick loads the one day entering the horizon,
+ * so the table is never rescanned. {@link PolicyExpiryScheduler}'s cron remains as a catch-up safety net.
+ */
+@Component
+public class PolicyExpiryTimer {
+    private static final Logger log = LoggerFactory.getLogger(PolicyExpiryTimer.class);
+
+    private static final long RETRY_DELAY_MILLIS = 60_000;
+    private static final long CONTENDED_DELAY_MILLIS = 10_000;
+
+    private final InsurancePolicyRepository policyRepository;
+    private final PolicyExpiryScheduler scheduler;
+    private final JobLeaseCoordinator leases;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final boolean virtualThreads;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final DelayQueue<Expiry> queue = new DelayQueue<>();
+    // End date each pending policy is scheduled for; queue entries that no longer match are stale and skipped.
+    private final ConcurrentHashMap<Long, LocalDate> scheduled = new ConcurrentHashMap<>();
+    private volatile LocalDate loadedUntil;
+    private Thread worker;
+
+    public PolicyExpiryTimer(InsurancePolicyRepository policyRepository,
+                             PolicyExpiryScheduler scheduler,
+                             JobLeaseCoordinator leases,
+                             PlatformTransactionManager txManager,
+                             @Value("${carins.expiry.timer.enabled:true}") boolean enabled,
+                             @Value("${carins.expiry.timer.horizon-days:7}") int horizonDays,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.policyRepository = policyRepository;
+        this.scheduler = scheduler;
+        this.leases = leases;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now(zone);
+        load(today.minusDays(1), today.plusDays(horizonDays));
+        queue.add(Expiry.refill(midnightOf(today.plusDays(1))));
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        worker = builder.name("policy-expiry-timer").start(this::dispatch);
+        log.info("Policy expiry timer started with {} pending expiries up to {}", scheduled.size(), loadedUntil);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public int pendingCount() {
+        return scheduled.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyWritten(PolicyWrittenEvent event) {
+        LocalDate horizon = loadedUntil;
+        if (horizon == null) {
+            return;
+        }
+        InsurancePolicyDto p = event.policy();
+        // Same window as start() loads: an end date before yesterday is not a fresh expiry (backdated
+        // or imported history), and one past the horizon is picked up by a later refill.
+        LocalDate earliest = LocalDate.now(zone).minusDays(1);
+        if (p.endDate() == null || p.endDate().isBefore(earliest) || p.endDate().isAfter(horizon)) {
+            // Moved out of the window: any queued entry for it is now stale.
+            scheduled.remove(p.id());
+            return;
+        }
+        schedule(p.id(), p.endDate(), midnightOf(p.endDate().plusDays(1)));
+    }
+
+    private void schedule(Long policyId, LocalDate endDate, long fireAtMillis) {
+        scheduled.put(policyId, endDate);
+        queue.add(new Expiry(policyId, endDate, fireAtMillis));
+    }
+
+    // loadedUntil moves first, so a policy written while the query runs is scheduled by its event.
+    private void load(LocalDate from, LocalDate to) {
+        loadedUntil = to;
+        List<InsurancePolicyDto> upcoming = readOnlyTx.execute(status -> policyRepository.findDtosEndingBetween(from, to));
+        for (InsurancePolicyDto p : upcoming) {
+            schedule(p.id(), p.endDate(), midnightOf(p.endDate().plusDays(1)));
+        }
+    }
+
+    private void dispatch() {
+        List<Expiry> due = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                due.add(queue.take());
+                queue.drainTo(due);
+                fire(due);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                log.error("Policy expiry timer failed to handle {} entries", due.size(), ex);
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    private void fire(List<Expiry> due) {
+        List<Long> policyIds = new ArrayList<>();
+        List<Expiry> fired = new ArrayList<>();
+        for (Expiry e : due) {
+            if (e.policyId() == null) {
+                refill();
+            } else if (scheduled.remove(e.policyId(), e.endDate())) {
+                policyIds.add(e.policyId());
+                fired.add(e);
+            }
+        }
+        if (policyIds.isEmpty()) {
+            return;
+        }
+
+        // Every node's timer fires at the same midnight; the lease makes them record one after another.
+        Optional<JobLeaseCoordinator.Lease> lease = leases.tryAcquire(PolicyExpiryScheduler.JOB_NAME);
+        if (lease.isEmpty()) {
+            retry(fired, CONTENDED_DELAY_MILLIS);
+            return;
+        }
+        try (JobLeaseCoordinator.Lease held = lease.get()) {
+            scheduler.recordExpired(policyIds);
+        } catch (RuntimeException ex) {
+            log.error("Failed to record {} expired policies, retrying in {} s", policyIds.size(), RETRY_DELAY_MILLIS / 1000, ex);
+            retry(fired, RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void retry(List<Expiry> entries, long delayMillis) {
+        long retryAt = System.currentTimeMillis() + delayMillis;
+        for (Expiry e : entries) {
+            scheduled.putIfAbsent(e.policyId(), e.endDate());
+            queue.add(new Expiry(e.policyId(), e.endDate(), retryAt));
+        }
+    }
+
+    private void refill() {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate previous = loadedUntil;
+        try {
+            if (loadedUntil.isBefore(today.plusDays(horizonDays))) {
+                load(loadedUntil.plusDays(1), today.plusDays(horizonDays));
+            }
+            queue.add(Expiry.refill(midnightOf(today.plusDays(1))));
+        } catch (RuntimeException ex) {
+            loadedUntil = previous;
+            log.error("Failed to load upcoming policy expiries, retrying in {} s", RETRY_DELAY_MILLIS / 1000, ex);
+            queue.add(Expiry.refill(System.currentTimeMillis() + RETRY_DELAY_MILLIS));
+        }
+    }
+
+    private long midnightOf(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * A policy expiry due at {@code fireAtMillis}; a {@code null} policy id marks the daily refill tick.
+     */
+    record Expiry(Long policyId, LocalDate endDate, long fireAtMillis) implements Delayed {
+
+        static Expiry refill(long fireAtMillis) {
+            return new Expiry(null, null, fireAtMillis);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(fireAtMillis, ((Expiry) other).fireAtMillis);
+        }
+    }
+}
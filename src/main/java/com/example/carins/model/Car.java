@@ -3,14 +3,25 @@ package com.example.carins.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "car")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Car.CACHE_REGION)
+@Table(name = "car",
+        uniqueConstraints = @UniqueConstraint(name = Car.UNIQUE_VIN, columnNames = "vin"))
 public class Car {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final String CACHE_REGION = "car";
+    public static final String UNIQUE_VIN = "uk_car_vin";
+
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_seq")
+    @SequenceGenerator(name = "car_seq", sequenceName = "car_seq", allocationSize = 50)
     private Long id;
 
+    // Stored trimmed and upper-case, so uniqueness and lookups are plain index seeks.
     @NotBlank @Size(min = 8, max = 8)
+    @Column(nullable = false, length = 8)
     private String vin;
 
     private String make;
@@ -22,7 +33,7 @@ public class Car {
 
     public Car() {}
     public Car(String vin, String make, String model, int yearOfManufacture, Owner owner) {
-        this.vin = vin;
+        this.vin = normalizeVin(vin);
         this.make = make;
         this.model = model;
         this.yearOfManufacture = yearOfManufacture;
@@ -31,7 +42,7 @@ public class Car {
 
     public Long getId() { return id; }
     public String getVin() { return vin; }
-    public void setVin(String vin) { this.vin = vin != null ? vin.trim().toUpperCase() : null;; }
+    public void setVin(String vin) { this.vin = normalizeVin(vin); }
     public String getMake() { return make; }
     public void setMake(String make) { this.make = make; }
     public String getModel() { return model; }
@@ -40,4 +51,8 @@ public class Car {
     public void setYearOfManufacture(int y) { this.yearOfManufacture = y; }
     public Owner getOwner() { return owner; }
     public void setOwner(Owner owner) { this.owner = owner; }
+
+    public static String normalizeVin(String vin) {
+        return vin != null ? vin.trim().toUpperCase() : null;
+    }
 }
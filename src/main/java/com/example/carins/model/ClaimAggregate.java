@@ -0,0 +1,64 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Running claim totals of one car or owner for one calendar month. Windows are answered by summing
+ * the months they cover, so no query ever scans the claim table.
+ */
+@Entity
+@Table(name = "claim_aggregate",
+        uniqueConstraints = @UniqueConstraint(name = ClaimAggregate.UNIQUE_KEY,
+                columnNames = {"scope", "scope_id", "period_month"}))
+public class ClaimAggregate {
+    public static final String UNIQUE_KEY = "uk_claim_aggregate_key";
+
+    public enum Scope { CAR, OWNER }
+
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "claim_aggregate_seq")
+    @SequenceGenerator(name = "claim_aggregate_seq", sequenceName = "claim_aggregate_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Scope scope;
+
+    // Car id or owner id, depending on scope.
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    // yyyyMM, e.g. 202503
+    @Column(name = "period_month", nullable = false)
+    private int periodMonth;
+
+    private long claimCount;
+    @Column(precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    @Column(precision = 14, scale = 2)
+    private BigDecimal maxAmount = BigDecimal.ZERO;
+    private LocalDate lastClaimDate;
+
+    public ClaimAggregate() {}
+
+    public ClaimAggregate(Scope scope, Long scopeId, int periodMonth) {
+        this.scope = scope;
+        this.scopeId = scopeId;
+        this.periodMonth = periodMonth;
+    }
+
+    public static int periodOf(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    public Long getId() { return id; }
+    public Scope getScope() { return scope; }
+    public Long getScopeId() { return scopeId; }
+    public int getPeriodMonth() { return periodMonth; }
+    public long getClaimCount() { return claimCount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    public LocalDate getLastClaimDate() { return lastClaimDate; }
+}
@@ -0,0 +1,38 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A car whose policies (or existence) changed at {@code changedAt}, written in the same transaction
+ * as the change. Every node reads these to bring its in-memory coverage indexes up to date with
+ * writes made on other nodes; rows are pruned once every node has had time to read them.
+ */
+@Entity
+@Table(name = "coverage_change",
+        indexes = @Index(name = "ix_coverage_change_changed_at", columnList = "changed_at"))
+public class CoverageChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coverage_change_seq")
+    @SequenceGenerator(name = "coverage_change_seq", sequenceName = "coverage_change_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "car_id", nullable = false)
+    private Long carId;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public CoverageChange() {}
+
+    public CoverageChange(Long carId, Instant changedAt) {
+        this.carId = carId;
+        this.changedAt = changedAt;
+    }
+
+    public Long getId() { return id; }
+    public Long getCarId() { return carId; }
+    public Instant getChangedAt() { return changedAt; }
+}
@@ -1,13 +1,23 @@
 package com.example.carins.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "insurancepolicy")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = InsurancePolicy.CACHE_REGION)
+@Table(name = "insurancepolicy",
+        indexes = {
+                @Index(name = "ix_insurancepolicy_end_date", columnList = "end_date"),
+                @Index(name = "ix_insurancepolicy_car_period", columnList = "car_id, start_date, end_date, id")
+        })
 public class InsurancePolicy {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final String CACHE_REGION = "policy";
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "insurancepolicy_seq")
+    @SequenceGenerator(name = "insurancepolicy_seq", sequenceName = "insurancepolicy_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
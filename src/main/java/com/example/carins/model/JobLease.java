@@ -0,0 +1,42 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "job_lease")
+public class JobLease {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    // Token of the current acquisition; unique per acquire, so two runs on one node never share a lease.
+    @Column(nullable = false, length = 200)
+    private String owner;
+
+    @Column(nullable = false, length = 150)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Instant leaseUntil;
+
+    private Instant acquiredAt;
+
+    public JobLease() {}
+
+    public JobLease(String jobName, String owner, String nodeId, Instant leaseUntil, Instant acquiredAt) {
+        this.jobName = jobName;
+        this.owner = owner;
+        this.nodeId = nodeId;
+        this.leaseUntil = leaseUntil;
+        this.acquiredAt = acquiredAt;
+    }
+
+    public String getJobName() { return jobName; }
+    public String getOwner() { return owner; }
+    public String getNodeId() { return nodeId; }
+    public Instant getLeaseUntil() { return leaseUntil; }
+    public Instant getAcquiredAt() { return acquiredAt; }
+}
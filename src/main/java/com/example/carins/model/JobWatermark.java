@@ -0,0 +1,45 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "job_watermark")
+public class JobWatermark {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    // Last day whose work is fully done; the next run starts the day after.
+    private LocalDate lastProcessedDate;
+
+    // Set while a day is being processed in chunks: that day and the last policy id already handled.
+    private LocalDate checkpointDate;
+    private Long checkpointPolicyId;
+
+    public JobWatermark() {}
+
+    public JobWatermark(String jobName, LocalDate lastProcessedDate) {
+        this.jobName = jobName;
+        this.lastProcessedDate = lastProcessedDate;
+    }
+
+    public String getJobName() { return jobName; }
+    public LocalDate getLastProcessedDate() { return lastProcessedDate; }
+    public void setLastProcessedDate(LocalDate lastProcessedDate) { this.lastProcessedDate = lastProcessedDate; }
+    public LocalDate getCheckpointDate() { return checkpointDate; }
+    public Long getCheckpointPolicyId() { return checkpointPolicyId; }
+
+    public void checkpoint(LocalDate date, Long policyId) {
+        this.checkpointDate = date;
+        this.checkpointPolicyId = policyId;
+    }
+
+    public void completeDay(LocalDate date) {
+        this.lastProcessedDate = date;
+        this.checkpointDate = null;
+        this.checkpointPolicyId = null;
+    }
+}
@@ -3,26 +3,40 @@ package com.example.carins.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "owner")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Owner.CACHE_REGION)
+@Table(name = "owner",
+        uniqueConstraints = @UniqueConstraint(name = Owner.UNIQUE_EMAIL, columnNames = "email"))
 public class Owner {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final String CACHE_REGION = "owner";
+    public static final String UNIQUE_EMAIL = "uk_owner_email";
+
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "owner_seq")
+    @SequenceGenerator(name = "owner_seq", sequenceName = "owner_seq", allocationSize = 50)
     private Long id;
     @NotBlank
     private String name;
+    // Stored trimmed and lower-case, so uniqueness and lookups are plain index seeks.
     @Email
     private String email;
 
     public Owner() {}
     public Owner(String name, String email) {
         this.name = name;
-        this.email = email;
+        this.email = normalizeEmail(email);
     }
 
     public Long getId() { return id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) { this.email = normalizeEmail(email); }
+
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase() : null;
+    }
 }
@@ -8,7 +8,8 @@ import jakarta.persistence.*;
 public class PolicyExpiryLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "policy_expiry_log_seq")
+    @SequenceGenerator(name = "policy_expiry_log_seq", sequenceName = "policy_expiry_log_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne(optional = false, fetch = FetchType.LAZY)
@@ -0,0 +1,268 @@
+package com.example.carins.pricing;
+
+import com.example.carins.analytics.ClaimAmountAnalytics;
+import com.example.carins.analytics.ClaimAmountAnalytics.Severity;
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimAggregateRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.CarWrittenEvent;
+import com.example.carins.service.ClaimsWrittenEvent;
+import com.example.carins.service.CoverageSweep;
+import com.example.carins.service.PolicyWrittenEvent;
+import com.example.carins.web.dto.FleetQuoteDto;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import com.example.carins.web.dto.PremiumQuoteDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Annual premium quotes: {@code base-premium} times the car's risk score, the product of
+ * <ul>
+ *   <li>an age factor: 1.10 up to 2 years old, 1.00 up to 10, then +0.02 a year up to 1.30;</li>
+ *   <li>a make/model factor: the model's median claim amount relative to the fleet's, weighted by how
+ *       many claims the model has and kept within 0.80..1.25;</li>
+ *   <li>a claim factor: +0.20 per claim and +0.05 per 1000 claimed over the history window, up to 3.00;</li>
+ *   <li>a continuity factor: up to +0.50 for the share of the window the car was uninsured.</li>
+ * </ul>
+ * The window covers the last {@code history-years} in whole calendar months (it is read from the claim
+ * aggregates), and starts no earlier than the car's year of manufacture.
+ * <p>
+ * Risk profiles are memoized in a bounded {@link RiskScoreCache} and dropped when a claim, policy or the
+ * car itself is written. Misses are loaded in chunks with set-based queries, chunks in parallel.
+ */
+@Service
+public class PremiumQuoteService {
+
+    private static final int CHUNK_SIZE = 256;
+    // Claims a model needs before its own median counts half.
+    private static final double CREDIBILITY_CLAIMS = 50;
+
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final ClaimAggregateRepository aggregateRepository;
+    private final ClaimAmountAnalytics claimAmounts;
+    private final TransactionTemplate readOnlyTx;
+    private final BigDecimal basePremium;
+    private final int historyYears;
+    private final RiskScoreCache cache;
+    private final ExecutorService pool;
+
+    public PremiumQuoteService(CarRepository carRepository,
+                               OwnerRepository ownerRepository,
+                               InsurancePolicyRepository policyRepository,
+                               ClaimAggregateRepository aggregateRepository,
+                               ClaimAmountAnalytics claimAmounts,
+                               PlatformTransactionManager txManager,
+                               @Value("${carins.pricing.base-premium:500.00}") BigDecimal basePremium,
+                               @Value("${carins.pricing.history-years:3}") int historyYears,
+                               @Value("${carins.pricing.cache.max-size:100000}") int cacheMaxSize,
+                               @Value("${carins.pricing.cache.ttl:PT1H}") Duration cacheTtl,
+                               @Value("${carins.pricing.parallelism:4}") int parallelism) {
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.policyRepository = policyRepository;
+        this.aggregateRepository = aggregateRepository;
+        this.claimAmounts = claimAmounts;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.basePremium = basePremium;
+        this.historyYears = historyYears;
+        this.cache = new RiskScoreCache(cacheMaxSize, cacheTtl.toNanos());
+        this.pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public PremiumQuoteDto quote(Long carId) {
+        FleetQuoteDto result = quoteAll(List.of(carId));
+        if (result.quotes().isEmpty()) {
+            throw new NoSuchElementException("Car with id " + carId + " not found!");
+        }
+        return result.quotes().get(0);
+    }
+
+    /**
+     * Quotes every car the owner currently holds.
+     */
+    public FleetQuoteDto quoteFleet(Long ownerId) {
+        if (!ownerRepository.existsById(ownerId)) {
+            throw new NoSuchElementException("Owner with id " + ownerId + " not found!");
+        }
+        return quoteAll(carRepository.findIdsByOwnerId(ownerId));
+    }
+
+    public FleetQuoteDto quoteAll(List<Long> carIds) {
+        long started = System.nanoTime();
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(carIds);
+        Map<Long, RiskProfile> profiles = new HashMap<>();
+        Map<Long, Long> stamps = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            RiskProfile cached = cache.get(id);
+            if (cached != null) {
+                profiles.put(id, cached);
+            } else {
+                // Taken before any read, so a write committing meanwhile keeps the result out of the cache.
+                stamps.put(id, cache.stamp(id));
+                missing.add(id);
+            }
+        }
+        int hits = profiles.size();
+
+        if (!missing.isEmpty()) {
+            LocalDate today = LocalDate.now();
+            Severity fleet = claimAmounts.severity(null, null);
+            List<CompletableFuture<List<RiskProfile>>> chunks = new ArrayList<>();
+            for (int from = 0; from < missing.size(); from += CHUNK_SIZE) {
+                List<Long> chunk = missing.subList(from, Math.min(from + CHUNK_SIZE, missing.size()));
+                chunks.add(missing.size() <= CHUNK_SIZE
+                        ? CompletableFuture.completedFuture(load(chunk, today, fleet))
+                        : CompletableFuture.supplyAsync(() -> load(chunk, today, fleet), pool));
+            }
+            for (CompletableFuture<List<RiskProfile>> chunk : chunks) {
+                for (RiskProfile p : chunk.join()) {
+                    profiles.put(p.carId(), p);
+                    cache.put(p, stamps.get(p.carId()));
+                }
+            }
+        }
+
+        List<PremiumQuoteDto> quotes = new ArrayList<>(profiles.size());
+        List<Long> notFound = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long id : ids) {
+            RiskProfile p = profiles.get(id);
+            if (p == null) {
+                notFound.add(id);
+                continue;
+            }
+            PremiumQuoteDto q = toQuote(p);
+            quotes.add(q);
+            total = total.add(q.premium());
+        }
+        return new FleetQuoteDto(quotes, notFound, total, hits, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyWritten(PolicyWrittenEvent event) {
+        cache.invalidate(event.policy().carId());
+        if (event.previousCarId() != null) {
+            cache.invalidate(event.previousCarId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClaimsWritten(ClaimsWrittenEvent event) {
+        event.carIds().forEach(cache::invalidate);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarWritten(CarWrittenEvent event) {
+        cache.invalidate(event.carId());
+    }
+
+    public CacheStats cacheStats() {
+        return new CacheStats(cache.size(), cache.hits(), cache.misses());
+    }
+
+    private List<RiskProfile> load(List<Long> carIds, LocalDate today, Severity fleet) {
+        return readOnlyTx.execute(status -> {
+            LocalDate windowStart = today.minusYears(historyYears);
+
+            Map<Long, List<InsurancePolicyDto>> policiesByCar = new HashMap<>();
+            for (InsurancePolicyDto p : policyRepository.findDtosForCarsOverlapping(carIds, windowStart, today)) {
+                policiesByCar.computeIfAbsent(p.carId(), id -> new ArrayList<>()).add(p);
+            }
+            Map<Long, Object[]> claimsByCar = new HashMap<>();
+            for (Object[] row : aggregateRepository.sumWindows(ClaimAggregate.Scope.CAR, carIds,
+                    ClaimAggregate.periodOf(windowStart), ClaimAggregate.periodOf(today))) {
+                claimsByCar.put((Long) row[0], row);
+            }
+
+            Map<String, Double> modelFactors = new HashMap<>();
+            List<RiskProfile> profiles = new ArrayList<>(carIds.size());
+            for (Object[] car : carRepository.findPricingRows(carIds)) {
+                Long carId = (Long) car[0];
+                int year = (Integer) car[1];
+                String make = (String) car[2];
+                String model = (String) car[3];
+
+                int age = Math.max(0, today.getYear() - year);
+                LocalDate from = windowStart.isAfter(LocalDate.of(year, 1, 1)) ? windowStart : LocalDate.of(year, 1, 1);
+                int windowDays = (int) Math.max(0, ChronoUnit.DAYS.between(from, today) + 1);
+                int uninsured = (int) CoverageSweep.of(policiesByCar.getOrDefault(carId, List.of()), from, today).uninsuredDays();
+                Object[] claims = claimsByCar.get(carId);
+                long claimCount = claims != null ? ((Number) claims[1]).longValue() : 0;
+                BigDecimal claimTotal = claims != null ? (BigDecimal) claims[2] : BigDecimal.ZERO;
+
+                double ageFactor = ageFactor(age);
+                double modelFactor = make == null ? 1.0
+                        : modelFactors.computeIfAbsent(make + '\u0000' + model, k -> modelFactor(make, model, fleet));
+                double claimFactor = Math.min(3.0, 1 + 0.20 * claimCount + 0.05 * claimTotal.doubleValue() / 1000);
+                double continuityFactor = windowDays == 0 ? 1.0 : 1 + 0.5 * uninsured / windowDays;
+
+                profiles.add(new RiskProfile(carId, age, claimCount, claimTotal, uninsured,
+                        round(ageFactor), round(modelFactor), round(claimFactor), round(continuityFactor),
+                        round(ageFactor * modelFactor * claimFactor * continuityFactor)));
+            }
+            return profiles;
+        });
+    }
+
+    private double modelFactor(String make, String model, Severity fleet) {
+        Severity own = claimAmounts.severity(make, model);
+        if (own.claims() == 0 || fleet.claims() == 0 || !(fleet.median() > 0)) {
+            return 1.0;
+        }
+        double credibility = own.claims() / (own.claims() + CREDIBILITY_CLAIMS);
+        double factor = 1 + credibility * (own.median() / fleet.median() - 1);
+        return Math.max(0.8, Math.min(1.25, factor));
+    }
+
+    private static double ageFactor(int age) {
+        if (age <= 2) {
+            return 1.10;
+        }
+        if (age <= 10) {
+            return 1.00;
+        }
+        return Math.min(1.30, 1 + 0.02 * (age - 10));
+    }
+
+    private PremiumQuoteDto toQuote(RiskProfile p) {
+        BigDecimal premium = basePremium.multiply(BigDecimal.valueOf(p.riskScore())).setScale(2, RoundingMode.HALF_UP);
+        return new PremiumQuoteDto(p.carId(), premium, p.riskScore(), p.ageFactor(), p.modelFactor(),
+                p.claimFactor(), p.continuityFactor(), p.claimsInWindow(), p.uninsuredDays());
+    }
+
+    private static double round(double factor) {
+        return Math.round(factor * 10_000) / 10_000.0;
+    }
+
+    public record CacheStats(int size, long hits, long misses) {}
+}
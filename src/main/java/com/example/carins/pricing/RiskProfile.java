@@ -0,0 +1,19 @@
+package com.example.carins.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * A car's rating inputs and factors. The risk score is the product of the factors; 1.0 is an average risk.
+ */
+public record RiskProfile(
+        long carId,
+        int ageYears,
+        long claimsInWindow,
+        BigDecimal claimTotalInWindow,
+        int uninsuredDays,
+        double ageFactor,
+        double modelFactor,
+        double claimFactor,
+        double continuityFactor,
+        double riskScore
+) {}
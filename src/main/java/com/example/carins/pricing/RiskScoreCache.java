@@ -0,0 +1,119 @@
+package com.example.carins.pricing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of risk profiles by car id with a time-to-live. Entries are spread over
+ * independently locked segments so parallel fleet quotes do not queue on one lock; each segment
+ * evicts its least recently used entry once it holds its share of {@code maxSize}.
+ * <p>
+ * Invalidation bumps the segment's generation. A loader reads the generation with {@link #stamp}
+ * before it reads the database and hands it back to {@link #put}, which drops the profile if an
+ * invalidation happened meanwhile, so a profile computed from pre-write data is never cached.
+ */
+final class RiskScoreCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    RiskScoreCache(int maxSize, long ttlNanos) {
+        int perSegment = Math.max(1, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.ttlNanos = ttlNanos;
+    }
+
+    RiskProfile get(long carId) {
+        Segment s = segmentFor(carId);
+        synchronized (s) {
+            Entry e = s.entries.get(carId);
+            if (e != null && System.nanoTime() - e.loadedAt < ttlNanos) {
+                hits.increment();
+                return e.profile;
+            }
+            if (e != null) {
+                s.entries.remove(carId);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    long stamp(long carId) {
+        Segment s = segmentFor(carId);
+        synchronized (s) {
+            return s.generation;
+        }
+    }
+
+    void put(RiskProfile profile, long stamp) {
+        Segment s = segmentFor(profile.carId());
+        synchronized (s) {
+            if (s.generation == stamp) {
+                s.entries.put(profile.carId(), new Entry(profile, System.nanoTime()));
+            }
+        }
+    }
+
+    void invalidate(long carId) {
+        Segment s = segmentFor(carId);
+        synchronized (s) {
+            s.generation++;
+            s.entries.remove(carId);
+        }
+    }
+
+    void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.generation++;
+                s.entries.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.entries.size();
+            }
+        }
+        return size;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private Segment segmentFor(long carId) {
+        return segments[(Long.hashCode(carId) * 0x9E3779B9 >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private record Entry(RiskProfile profile, long loadedAt) {}
+
+    private static final class Segment {
+        long generation;
+        final Map<Long, Entry> entries;
+
+        Segment(int maxEntries) {
+            this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+}
@@ -1,16 +1,77 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.web.dto.CarDto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
-    boolean existsByVinIgnoreCase(String vin);
-    boolean existsByVinIgnoreCaseAndIdNot(String vin, Long id);
     @EntityGraph(attributePaths = {"owner"})
     List<Car> findAll();
     Optional<Car> findByVin(String vin);
-}
\ No newline at end of file
+
+    // Guards most car reads; answered from the query cache until the car table is written.
+    @Query("select count(c) > 0 from Car c where c.id = :id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    boolean existsById(@Param("id") Long id);
+
+    @Query("select c.id from Car c")
+    Stream<Long> streamAllIds();
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where c.id > :afterId " +
+           "order by c.id asc")
+    List<CarDto> findDtoPageAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "order by c.id asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<CarDto> streamAllDtos();
+
+    @Query("select c.id from Car c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Returns [id, vin] pairs; vins must be normalized (see Car.normalizeVin).
+    @Query("select c.id, c.vin from Car c where c.vin in :vins")
+    List<Object[]> findIdsByVins(@Param("vins") Collection<String> vins);
+
+    // Returns [carId, ownerId] pairs for the cars that exist.
+    @Query("select c.id, c.owner.id from Car c where c.id in :ids")
+    List<Object[]> findOwnerIds(@Param("ids") Collection<Long> ids);
+
+    // Returns a single [min id, max id] row, nulls when there are no cars.
+    @Query("select min(c.id), max(c.id) from Car c")
+    List<Object[]> findIdRange();
+
+    // Returns [id, yearOfManufacture, make, model] rows for the cars that exist.
+    @Query("select c.id, c.yearOfManufacture, c.make, c.model from Car c where c.id in :ids")
+    List<Object[]> findPricingRows(@Param("ids") Collection<Long> ids);
+
+    @Query("select c.id from Car c where c.owner.id = :ownerId order by c.id")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+
+    // SELECT ... FOR UPDATE on the car row: serializes policy writes per car, across nodes too.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Car c where c.id = :id")
+    Optional<Car> findByIdForUpdate(@Param("id") Long id);
+
+    // Locks in id order, so two writers locking overlapping sets cannot deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Car c where c.id in :ids order by c.id")
+    List<Car> lockAllById(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,80 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.model.ClaimAggregate.Scope;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ClaimAggregateRepository extends JpaRepository<ClaimAggregate, Long> {
+
+    // Atomic in-place increment; 0 when the month's row does not exist yet.
+    @Modifying
+    @Query("update ClaimAggregate a " +
+           "set a.claimCount = a.claimCount + :count, " +
+           "    a.totalAmount = a.totalAmount + :total, " +
+           "    a.maxAmount = case when a.maxAmount < :max then :max else a.maxAmount end, " +
+           "    a.lastClaimDate = case when a.lastClaimDate is null or a.lastClaimDate < :last then :last else a.lastClaimDate end " +
+           "where a.scope = :scope and a.scopeId = :scopeId and a.periodMonth = :period")
+    int increment(@Param("scope") Scope scope,
+                  @Param("scopeId") Long scopeId,
+                  @Param("period") int period,
+                  @Param("count") long count,
+                  @Param("total") BigDecimal total,
+                  @Param("max") BigDecimal max,
+                  @Param("last") LocalDate last);
+
+    // Returns a single [count, total, max, lastClaimDate] row; sums are null when nothing matches.
+    @Query("select sum(a.claimCount), sum(a.totalAmount), max(a.maxAmount), max(a.lastClaimDate) " +
+           "from ClaimAggregate a " +
+           "where a.scope = :scope and a.scopeId = :scopeId " +
+           "and a.periodMonth between :fromPeriod and :toPeriod")
+    List<Object[]> sumWindow(@Param("scope") Scope scope,
+                             @Param("scopeId") Long scopeId,
+                             @Param("fromPeriod") int fromPeriod,
+                             @Param("toPeriod") int toPeriod);
+
+    // Returns [scopeId, count, total] rows for the ids with claims in the window.
+    @Query("select a.scopeId, sum(a.claimCount), sum(a.totalAmount) " +
+           "from ClaimAggregate a " +
+           "where a.scope = :scope and a.scopeId in :ids " +
+           "and a.periodMonth between :fromPeriod and :toPeriod " +
+           "group by a.scopeId")
+    List<Object[]> sumWindows(@Param("scope") Scope scope,
+                              @Param("ids") Collection<Long> ids,
+                              @Param("fromPeriod") int fromPeriod,
+                              @Param("toPeriod") int toPeriod);
+
+    @Modifying
+    @Query("delete from ClaimAggregate a where a.scope = :scope and a.scopeId between :fromId and :toId")
+    int deleteRange(@Param("scope") Scope scope, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Query("insert into ClaimAggregate (scope, scopeId, periodMonth, claimCount, totalAmount, maxAmount, lastClaimDate) " +
+           "select :scope, c.car.id, year(c.claimDate) * 100 + month(c.claimDate), " +
+           "       count(c), sum(c.amount), max(c.amount), max(c.claimDate) " +
+           "from Claim c " +
+           "where c.car.id between :fromId and :toId " +
+           "group by c.car.id, year(c.claimDate) * 100 + month(c.claimDate)")
+    int insertCarTotalsFromClaims(@Param("scope") Scope scope, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Owner months are the sums of the owner's current cars' months.
+    @Modifying
+    @Query("insert into ClaimAggregate (scope, scopeId, periodMonth, claimCount, totalAmount, maxAmount, lastClaimDate) " +
+           "select :ownerScope, car.owner.id, a.periodMonth, " +
+           "       sum(a.claimCount), sum(a.totalAmount), max(a.maxAmount), max(a.lastClaimDate) " +
+           "from ClaimAggregate a, Car car " +
+           "where a.scope = :carScope and a.scopeId = car.id " +
+           "and car.owner.id between :fromId and :toId " +
+           "group by car.owner.id, a.periodMonth")
+    int insertOwnerTotalsFromCars(@Param("ownerScope") Scope ownerScope,
+                                  @Param("carScope") Scope carScope,
+                                  @Param("fromId") Long fromId,
+                                  @Param("toId") Long toId);
+}
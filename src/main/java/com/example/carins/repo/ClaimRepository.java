@@ -1,15 +1,63 @@
 package com.example.carins.repo;
 
+import com.example.carins.analytics.ClaimFacts;
 import com.example.carins.model.*;
+import com.example.carins.web.dto.ClaimDto;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface ClaimRepository extends JpaRepository<Claim, Long> {
 
-    @Query("select c from Claim c where c.car.id = :carId order by c.claimDate asc")
-    List<Claim> findClaimsForCar(@Param("carId") Long carId);
+    // Served in index order by ix_claim_car_date (car_id, claim_date, id); the cursor is (afterDate, afterId).
+    String CAR_HISTORY_DTOS =
+            "select new com.example.carins.web.dto.ClaimDto(c.id, c.car.id, c.claimDate, c.description, c.amount) " +
+            "from Claim c " +
+            "where c.car.id = :carId " +
+            "and (:from is null or c.claimDate >= :from) " +
+            "and (:to is null or c.claimDate <= :to) " +
+            "and (:afterDate is null or c.claimDate > :afterDate or (c.claimDate = :afterDate and c.id > :afterId)) " +
+            "order by c.claimDate asc, c.id asc";
+
+    @Query(CAR_HISTORY_DTOS)
+    List<ClaimDto> findDtoPageForCar(@Param("carId") Long carId,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to,
+                                     @Param("afterDate") LocalDate afterDate,
+                                     @Param("afterId") Long afterId,
+                                     Limit limit);
+
+    @Query(CAR_HISTORY_DTOS)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<ClaimDto> streamDtosForCar(@Param("carId") Long carId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to,
+                                      @Param("afterDate") LocalDate afterDate,
+                                      @Param("afterId") Long afterId);
+
+    // The provider is looked up per claim through ix_insurancepolicy_car_period (car_id, start_date, end_date, id).
+    String CLAIM_FACTS =
+            "select new com.example.carins.analytics.ClaimFacts(c.id, c.amount, car.make, car.model, " +
+            "  (select p.provider from InsurancePolicy p " +
+            "   where p.car = car and p.startDate <= c.claimDate and (p.endDate is null or p.endDate >= c.claimDate) " +
+            "   order by p.startDate desc, p.id desc limit 1)) " +
+            "from Claim c join c.car car ";
+
+    @Query(CLAIM_FACTS + "where c.id in :ids")
+    List<ClaimFacts> findFactsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(CLAIM_FACTS)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<ClaimFacts> streamAllFacts();
 }
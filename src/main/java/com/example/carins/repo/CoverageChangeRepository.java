@@ -0,0 +1,21 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.CoverageChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CoverageChangeRepository extends JpaRepository<CoverageChange, Long> {
+
+    // Range scan on ix_coverage_change_changed_at.
+    @Query("select c from CoverageChange c where c.changedAt > :since")
+    List<CoverageChange> findChangedSince(@Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from CoverageChange c where c.changedAt < :before")
+    int deleteOlderThan(@Param("before") Instant before);
+}
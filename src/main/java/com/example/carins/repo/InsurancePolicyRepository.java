@@ -1,11 +1,20 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy, Long> {
@@ -17,7 +26,106 @@ public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy
            "and (p.endDate is null or p.endDate >= :date)")
     boolean existsActiveOnDate(@Param("carId") Long carId, @Param("date") LocalDate date);
 
+    // Range probe on ix_insurancepolicy_car_period (car_id, start_date, end_date, id); excludeId skips the policy being updated.
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and p.startDate <= :end " +
+           "and (p.endDate is null or p.endDate >= :start) " +
+           "and p.id <> :excludeId " +
+           "order by p.startDate asc")
+    List<InsurancePolicyDto> findOverlapping(@Param("carId") Long carId,
+                                             @Param("start") LocalDate start,
+                                             @Param("end") LocalDate end,
+                                             @Param("excludeId") Long excludeId,
+                                             Limit limit);
+
+    @Query("select p.car.id from InsurancePolicy p where p.id = :id")
+    Optional<Long> findCarIdById(@Param("id") Long id);
+
     List<InsurancePolicy> findByCarId(Long carId);
     List<InsurancePolicy> findAll();
     List<InsurancePolicy> findByEndDate(LocalDate endDate);
-}
\ No newline at end of file
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "order by p.startDate asc")
+    List<InsurancePolicyDto> findDtosByCarId(@Param("carId") Long carId);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "order by p.car.id asc, p.startDate asc")
+    List<InsurancePolicyDto> findDtosByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "order by p.car.id asc, p.startDate asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<InsurancePolicyDto> streamAllOrderByCar();
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "and p.startDate <= :to " +
+           "and (p.endDate is null or p.endDate >= :from)")
+    List<InsurancePolicyDto> findDtosForCarsOverlapping(@Param("carIds") Collection<Long> carIds,
+                                                        @Param("from") LocalDate from,
+                                                        @Param("to") LocalDate to);
+
+    // Returns [carId, vin, startDate, endDate] rows: every car, joined to its policies touching [from, to],
+    // ordered by (car_id, start_date). A car without such a policy yields one row with null dates.
+    @Query("select c.id, c.vin, p.startDate, p.endDate " +
+           "from Car c left join InsurancePolicy p " +
+           "on p.car.id = c.id and p.startDate <= :to and (p.endDate is null or p.endDate >= :from) " +
+           "order by c.id asc, p.startDate asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Object[]> streamCoveragePeriods(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    String FILTERED_DTOS =
+            "select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+            "from InsurancePolicy p " +
+            "where p.id > :afterId " +
+            "and (:provider is null or p.provider = :provider) " +
+            "and (:to is null or p.startDate <= :to) " +
+            "and (:from is null or p.endDate is null or p.endDate >= :from) " +
+            "order by p.id asc";
+
+    @Query(FILTERED_DTOS)
+    List<InsurancePolicyDto> findDtoPageAfter(@Param("afterId") Long afterId,
+                                              @Param("provider") String provider,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to,
+                                              Limit limit);
+
+    @Query(FILTERED_DTOS)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<InsurancePolicyDto> streamDtos(@Param("afterId") Long afterId,
+                                          @Param("provider") String provider,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.endDate between :from and :to")
+    List<InsurancePolicyDto> findDtosEndingBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Timeline sources: one car's policies ordered by start day and by end day.
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and (:from is null or p.startDate >= :from) " +
+           "order by p.startDate asc, p.id asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<InsurancePolicyDto> streamDtosForCarByStart(@Param("carId") Long carId, @Param("from") LocalDate from);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and p.endDate is not null " +
+           "and (:from is null or p.endDate >= :from) " +
+           "order by p.endDate asc, p.id asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<InsurancePolicyDto> streamDtosForCarByEnd(@Param("carId") Long carId, @Param("from") LocalDate from);
+}
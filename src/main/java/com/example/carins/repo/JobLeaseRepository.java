@@ -0,0 +1,26 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    @Modifying
+    @Query("update JobLease l " +
+           "set l.owner = :owner, l.nodeId = :nodeId, l.leaseUntil = :until, l.acquiredAt = :now " +
+           "where l.jobName = :jobName and l.leaseUntil < :now")
+    int takeOverExpired(@Param("jobName") String jobName,
+                        @Param("owner") String owner,
+                        @Param("nodeId") String nodeId,
+                        @Param("until") Instant until,
+                        @Param("now") Instant now);
+
+    @Modifying
+    @Query("update JobLease l set l.leaseUntil = :until where l.jobName = :jobName and l.owner = :owner")
+    int extend(@Param("jobName") String jobName, @Param("owner") String owner, @Param("until") Instant until);
+}
@@ -0,0 +1,7 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+}
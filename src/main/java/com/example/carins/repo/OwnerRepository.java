@@ -1,13 +1,29 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 @Repository
 public interface OwnerRepository extends JpaRepository<Owner, Long> {
-    boolean existsByEmailIgnoreCase(String email);
-    boolean existsByEmailIgnoreCaseAndIdNot(String email, Long id);
-}
 
+    // Answered from the query cache until the owner table is written.
+    @Query("select count(o) > 0 from Owner o where o.id = :id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    boolean existsById(@Param("id") Long id);
 
+    // Returns [id, email] pairs; emails must be normalized (see Owner.normalizeEmail).
+    @Query("select o.id, o.email from Owner o where o.email in :emails")
+    List<Object[]> findIdsByEmails(@Param("emails") Collection<String> emails);
+
+    // Returns a single [min id, max id] row, nulls when there are no owners.
+    @Query("select min(o.id), max(o.id) from Owner o")
+    List<Object[]> findIdRange();
+}
@@ -1,8 +1,70 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.PolicyExpiryLog;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface PolicyExpiryLogRepository extends JpaRepository<PolicyExpiryLog, Long> {
     boolean existsByPolicyId(Long policyId);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.endDate between :from and :to " +
+           "and not exists (select 1 from PolicyExpiryLog l where l.policy.id = p.id) " +
+           "order by p.endDate asc, p.id asc")
+    List<InsurancePolicyDto> findUnloggedExpiredBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("insert into PolicyExpiryLog (policy) " +
+           "select p from InsurancePolicy p " +
+           "where p.endDate between :from and :to " +
+           "and not exists (select 1 from PolicyExpiryLog l where l.policy.id = p.id)")
+    int insertUnloggedExpiredBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.endDate = :endDate " +
+           "and p.id > :afterId " +
+           "and not exists (select 1 from PolicyExpiryLog l where l.policy.id = p.id) " +
+           "order by p.id asc")
+    List<InsurancePolicyDto> findUnloggedExpiredOnAfter(@Param("endDate") LocalDate endDate,
+                                                        @Param("afterId") Long afterId,
+                                                        Limit limit);
+
+    @Modifying
+    @Query("insert into PolicyExpiryLog (policy) " +
+           "select p from InsurancePolicy p " +
+           "where p.id in :policyIds " +
+           "and not exists (select 1 from PolicyExpiryLog l where l.policy.id = p.id)")
+    int insertUnloggedByPolicyIds(@Param("policyIds") Collection<Long> policyIds);
+
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.id in :policyIds " +
+           "and not exists (select 1 from PolicyExpiryLog l where l.policy.id = p.id) " +
+           "order by p.id asc")
+    List<InsurancePolicyDto> findUnloggedByPolicyIds(@Param("policyIds") Collection<Long> policyIds);
+
+    // Timeline source: one car's logged expiries ordered by end day.
+    @Query("select new com.example.carins.web.dto.InsurancePolicyDto(p.id, p.car.id, p.provider, p.startDate, p.endDate) " +
+           "from PolicyExpiryLog l join l.policy p " +
+           "where p.car.id = :carId " +
+           "and (:endFrom is null or p.endDate >= :endFrom) " +
+           "order by p.endDate asc, p.id asc")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<InsurancePolicyDto> streamLoggedForCar(@Param("carId") Long carId, @Param("endFrom") LocalDate endFrom);
 }
@@ -0,0 +1,33 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.ClaimDto;
+
+/**
+ * Entity-to-DTO mapping for cars and claims. Callers must have the car's owner (and the claim's
+ * car id) loaded, or be inside a transaction.
+ */
+public final class CarMappers {
+
+    private CarMappers() {}
+
+    public static CarDto carToDto(Car c) {
+        var o = c.getOwner();
+        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
+                o != null ? o.getId() : null,
+                o != null ? o.getName() : null,
+                o != null ? o.getEmail() : null);
+    }
+
+    public static ClaimDto claimToDto(Claim c) {
+        return new ClaimDto(
+                c.getId(),
+                c.getCar() != null ? c.getCar().getId() : null,
+                c.getClaimDate(),
+                c.getDescription(),
+                c.getAmount()
+        );
+    }
+}
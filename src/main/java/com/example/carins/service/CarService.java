@@ -1,5 +1,6 @@
 package com.example.carins.service;
 
+import com.example.carins.analytics.ClaimAmountAnalytics;
 import com.example.carins.model.Car;
 import com.example.carins.model.Claim;
 import com.example.carins.model.Owner;
@@ -9,15 +10,40 @@ import com.example.carins.repo.InsurancePolicyRepository;
 import com.example.carins.repo.OwnerRepository;
 import com.example.carins.web.dto.CarDto;
 import com.example.carins.web.dto.ClaimDto;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import com.example.carins.web.dto.InsuranceValidityResultDto;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static com.example.carins.service.CarMappers.carToDto;
+import static com.example.carins.service.CarMappers.claimToDto;
+
+/**
+ * Car, claim and validity reads and writes. {@link #history} and
+ * {@link #isInsuranceValid(Long, LocalDate)} coalesce identical concurrent calls into one database
+ * load (see {@link SingleFlight}); only the caller running the load holds a transaction, and the
+ * writes below detach the loads they make stale. {@link #findCarById} is not coalesced here: its
+ * only caller, GET /api/cars/{id}, already shares one load per car through the response cache.
+ */
 @Service
 public class CarService {
 
@@ -25,19 +51,56 @@ public class CarService {
     private final InsurancePolicyRepository policyRepository;
     private final ClaimRepository claimRepository;
     private final OwnerRepository ownerRepository;
+    private final PolicyIntervalIndex policyIndex;
+    private final CoverageChangeFeed coverageChanges;
+    private final ClaimAggregateService claimAggregates;
+    private final ClaimAmountAnalytics claimAmounts;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate readOnlyTx;
+
+    private final SingleFlight<HistoryKey, List<ClaimDto>> historyLoads = new SingleFlight<>("history");
+    private final SingleFlight<ValidityKey, Boolean> validityLoads = new SingleFlight<>("isInsuranceValid");
 
     public CarService(CarRepository carRepository,
                       InsurancePolicyRepository policyRepository,
                       ClaimRepository claimRepository,
-                      OwnerRepository ownerRepository) {
+                      OwnerRepository ownerRepository,
+                      PolicyIntervalIndex policyIndex,
+                      CoverageChangeFeed coverageChanges,
+                      ClaimAggregateService claimAggregates,
+                      ClaimAmountAnalytics claimAmounts,
+                      ApplicationEventPublisher events,
+                      PlatformTransactionManager txManager) {
         this.carRepository = carRepository;
         this.policyRepository = policyRepository;
         this.claimRepository = claimRepository;
         this.ownerRepository = ownerRepository;
+        this.policyIndex = policyIndex;
+        this.coverageChanges = coverageChanges;
+        this.claimAggregates = claimAggregates;
+        this.claimAmounts = claimAmounts;
+        this.events = events;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Keyset page of cars ordered by id, starting after {@code afterId} (exclusive).
+     */
+    @Transactional(readOnly = true)
+    public List<CarDto> listCars(Long afterId, int limit) {
+        return carRepository.findDtoPageAfter(afterId != null ? afterId : 0L, Limit.of(limit));
     }
 
-    public List<Car> listCars() {
-        return carRepository.findAll();
+    /**
+     * Streams every car as a DTO projection, so no entity is attached to the persistence context
+     * and memory use does not grow with the table size.
+     */
+    @Transactional(readOnly = true)
+    public void forEachCar(Consumer<CarDto> action) {
+        try (Stream<CarDto> cars = carRepository.streamAllDtos()) {
+            cars.forEach(action);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -50,17 +113,15 @@ public class CarService {
 
     @Transactional
     public CarDto create(CarDto dto) {
-        String vin = dto.vin().trim().toUpperCase();
-
-        if (carRepository.existsByVinIgnoreCase(vin)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Car with VIN " + vin + " already exists!");
-        }
-
         Owner owner = ownerRepository.findById(dto.ownerId())
                 .orElseThrow(() -> new NoSuchElementException("Owner with id " + dto.ownerId() + " not found!"));
         Car car = new Car(dto.vin(), dto.make(), dto.model(), dto.year(), owner);
 
-        return carToDto(carRepository.save(car));
+        Car saved = saveUniqueVin(car);
+        policyIndex.registerCar(saved.getId());
+        coverageChanges.record(saved.getId());
+        events.publishEvent(new CarWrittenEvent(saved.getId()));
+        return carToDto(saved);
     }
 
     @Transactional
@@ -68,40 +129,156 @@ public class CarService {
         Car existing = carRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Car with id " + id + " not found!"));
 
-        String vin = dto.vin().trim().toUpperCase();
-        if (carRepository.existsByVinIgnoreCaseAndIdNot(vin, id)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Car with VIN " + vin + " already exists!");
-        }
-
         Owner owner = ownerRepository.findById(dto.ownerId())
                 .orElseThrow(() -> new NoSuchElementException("Owner with id " + dto.ownerId() + " not found!"));
 
-        existing.setVin(vin);
+        Long previousOwnerId = existing.getOwner().getId();
+        existing.setVin(dto.vin());
         existing.setMake(dto.make());
         existing.setModel(dto.model());
         existing.setOwner(owner);
 
-        return carToDto(carRepository.save(existing));
+        Car saved = saveUniqueVin(existing);
+        if (!previousOwnerId.equals(owner.getId())) {
+            claimAggregates.ownerChanged(previousOwnerId, owner.getId());
+        }
+        events.publishEvent(new CarWrittenEvent(saved.getId()));
+        return carToDto(saved);
+    }
+
+    // The unique constraint on car.vin is the duplicate check; flushing here surfaces it as a 409.
+    private Car saveUniqueVin(Car car) {
+        try {
+            return carRepository.saveAndFlush(car);
+        } catch (DataIntegrityViolationException ex) {
+            if (ConstraintViolations.isViolationOf(ex, Car.UNIQUE_VIN)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Car with VIN " + car.getVin() + " already exists!");
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Keyset page of a car's claims ordered by (claimDate, id), optionally limited to [from, to].
+     * The page starts after the cursor ({@code afterDate}, {@code afterId}); pass nulls for the first page.
+     */
+    public List<ClaimDto> history(Long carId, LocalDate from, LocalDate to, LocalDate afterDate, Long afterId, int limit) {
+        return historyLoads.load(new HistoryKey(carId, from, to, afterDate, afterId, limit), () -> readOnlyTx.execute(status -> {
+            requireCar(carId);
+            return List.copyOf(claimRepository.findDtoPageForCar(carId, from, to, afterDate,
+                    afterId != null ? afterId : 0L, Limit.of(limit)));
+        }));
     }
 
+    /**
+     * Streams a car's claims in history order as DTO projections.
+     */
     @Transactional(readOnly = true)
-    public List<Claim> history(Long carId) {
+    public void forEachClaim(Long carId, LocalDate from, LocalDate to, Consumer<ClaimDto> action) {
+        try (Stream<ClaimDto> claims = claimRepository.streamDtosForCar(carId, from, to, null, 0L)) {
+            claims.forEach(action);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void requireCar(Long carId) {
         if (!carRepository.existsById(carId)) {
             throw new NoSuchElementException("Car with id " + carId + " not found!");
         }
-
-        return claimRepository.findClaimsForCar(carId);
     }
 
     public boolean isInsuranceValid(Long carId, LocalDate date) {
         if (carId == null || date == null) return false;
 
+        if (policyIndex.isLoaded()) {
+            Boolean covered = policyIndex.isCovered(carId, date);
+            if (covered != null) {
+                return covered;
+            }
+        }
+        // Everything from here on reads the database.
+        return validityLoads.load(new ValidityKey(carId, date), () -> loadInsuranceValid(carId, date));
+    }
+
+    private boolean loadInsuranceValid(Long carId, LocalDate date) {
+        if (policyIndex.isLoaded()) {
+            Boolean covered = policyIndex.isCovered(carId, date);
+            if (covered != null) {
+                return covered;
+            }
+            // Car not indexed (unknown, or inserted outside CarService): check once and index it.
+            if (!carRepository.existsById(carId)) {
+                throw new NoSuchElementException("Car with id " + carId + " not found!");
+            }
+            policyIndex.loadCar(carId, policyRepository.findDtosByCarId(carId));
+            return policyIndex.isCovered(carId, date);
+        }
+
         if (!carRepository.existsById(carId)) {
             throw new NoSuchElementException("Car with id " + carId + " not found!");
         }
         return policyRepository.existsActiveOnDate(carId, date);
     }
 
+    /**
+     * Resolves many (car, date) checks with three set-based queries: VIN lookup, car existence
+     * and the policies overlapping the requested date span. Unknown cars are reported per item.
+     */
+    @Transactional(readOnly = true)
+    public List<InsuranceValidityResultDto> isInsuranceValid(List<ValidityQuery> queries) {
+        Set<String> vins = new HashSet<>();
+        Set<Long> carIds = new HashSet<>();
+        LocalDate from = LocalDate.MAX;
+        LocalDate to = LocalDate.MIN;
+        for (ValidityQuery q : queries) {
+            if (q.carId() != null) {
+                carIds.add(q.carId());
+            } else {
+                vins.add(Car.normalizeVin(q.vin()));
+            }
+            if (q.date().isBefore(from)) from = q.date();
+            if (q.date().isAfter(to)) to = q.date();
+        }
+
+        Map<String, Long> carIdByVin = new HashMap<>();
+        if (!vins.isEmpty()) {
+            for (Object[] row : carRepository.findIdsByVins(vins)) {
+                carIdByVin.putIfAbsent((String) row[1], (Long) row[0]);
+            }
+        }
+        Set<Long> existing = carIds.isEmpty() ? new HashSet<>() : new HashSet<>(carRepository.findExistingIds(carIds));
+        existing.addAll(carIdByVin.values());
+
+        Map<Long, List<InsurancePolicyDto>> policiesByCar = new HashMap<>();
+        if (!existing.isEmpty()) {
+            for (InsurancePolicyDto p : policyRepository.findDtosForCarsOverlapping(existing, from, to)) {
+                policiesByCar.computeIfAbsent(p.carId(), id -> new ArrayList<>()).add(p);
+            }
+        }
+
+        List<InsuranceValidityResultDto> results = new ArrayList<>(queries.size());
+        for (ValidityQuery q : queries) {
+            Long carId = q.carId() != null ? q.carId() : carIdByVin.get(Car.normalizeVin(q.vin()));
+            String date = q.date().toString();
+            if (carId == null || !existing.contains(carId)) {
+                String error = q.carId() != null
+                        ? "Car with id " + q.carId() + " not found!"
+                        : "Car with VIN " + q.vin() + " not found!";
+                results.add(InsuranceValidityResultDto.carNotFound(q.carId(), q.vin(), date, error));
+                continue;
+            }
+            boolean valid = false;
+            for (InsurancePolicyDto p : policiesByCar.getOrDefault(carId, List.of())) {
+                if (!p.startDate().isAfter(q.date()) && (p.endDate() == null || !p.endDate().isBefore(q.date()))) {
+                    valid = true;
+                    break;
+                }
+            }
+            results.add(InsuranceValidityResultDto.ok(carId, q.vin(), date, valid));
+        }
+        return results;
+    }
+
     @Transactional(readOnly = true)
     public ClaimDto findClaimById(Long id) {
         Claim claim = claimRepository.findById(id)
@@ -116,24 +293,37 @@ public class CarService {
                 .orElseThrow(() -> new NoSuchElementException("Car with id " + dto.carId() + " not found!"));
 
         Claim claim = new Claim(car, dto.claimDate(), dto.description(), dto.amount());
-        return claimToDto(claimRepository.save(claim));
+        Claim saved = claimRepository.save(claim);
+        claimAggregates.record(new ClaimAggregateService.ClaimEntry(
+                car.getId(), car.getOwner().getId(), saved.getClaimDate(), saved.getAmount()));
+        claimAmounts.record(List.of(saved.getId()));
+        events.publishEvent(new ClaimsWrittenEvent(List.of(car.getId())));
+        return claimToDto(saved);
+    }
+
+    public List<SingleFlight.Stats> coalescingStats() {
+        return List.of(historyLoads.stats(), validityLoads.stats());
     }
 
-    private ClaimDto claimToDto(Claim c) {
-        return new ClaimDto(
-                c.getId(),
-                c.getCar() != null ? c.getCar().getId() : null,
-                c.getClaimDate(),
-                c.getDescription(),
-                c.getAmount()
-        );
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarWritten(CarWrittenEvent event) {
+        validityLoads.forget(key -> key.carId().equals(event.carId()));
     }
 
-    private CarDto carToDto(Car c) {
-        var o = c.getOwner();
-        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
-                o != null ? o.getId() : null,
-                o != null ? o.getName() : null,
-                o != null ? o.getEmail() : null);
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClaimsWritten(ClaimsWrittenEvent event) {
+        historyLoads.forget(key -> event.carIds().contains(key.carId()));
     }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyWritten(PolicyWrittenEvent event) {
+        validityLoads.forget(key -> key.carId().equals(event.policy().carId())
+                || key.carId().equals(event.previousCarId()));
+    }
+
+    public record ValidityQuery(Long carId, String vin, LocalDate date) {}
+
+    private record HistoryKey(Long carId, LocalDate from, LocalDate to, LocalDate afterDate, Long afterId, int limit) {}
+
+    private record ValidityKey(Long carId, LocalDate date) {}
 }
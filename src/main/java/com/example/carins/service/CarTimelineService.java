@@ -0,0 +1,105 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.PolicyExpiryLogRepository;
+import com.example.carins.web.dto.TimelineEventDto;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A car's timeline: claims, policy starts and ends, and logged expiries in one chronological sequence.
+ * Each source is read from the database already in timeline order and the four are combined with a
+ * {@link SortedMerge}, so a page reads only as far into each source as the page reaches.
+ */
+@Service
+public class CarTimelineService {
+
+    private final CarRepository carRepository;
+    private final ClaimRepository claimRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final PolicyExpiryLogRepository expiryLogRepository;
+
+    public CarTimelineService(CarRepository carRepository,
+                              ClaimRepository claimRepository,
+                              InsurancePolicyRepository policyRepository,
+                              PolicyExpiryLogRepository expiryLogRepository) {
+        this.carRepository = carRepository;
+        this.claimRepository = claimRepository;
+        this.policyRepository = policyRepository;
+        this.expiryLogRepository = expiryLogRepository;
+    }
+
+    /**
+     * Up to {@code limit} events following {@code after} (exclusive; null for the first page).
+     */
+    @Transactional(readOnly = true)
+    public List<TimelineEventDto> timeline(Long carId, Cursor after, int limit) {
+        if (!carRepository.existsById(carId)) {
+            throw new NoSuchElementException("Car with id " + carId + " not found!");
+        }
+        try (Stream<TimelineEventDto> events = merged(carId, after)) {
+            return events.limit(limit).toList();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachEvent(Long carId, Consumer<TimelineEventDto> action) {
+        try (Stream<TimelineEventDto> events = merged(carId, null)) {
+            events.forEach(action);
+        }
+    }
+
+    // The queries skip days before the cursor; events on the cursor's day up to the cursor are dropped here.
+    private Stream<TimelineEventDto> merged(Long carId, Cursor after) {
+        LocalDate from = after != null ? after.date() : null;
+        Stream<TimelineEventDto> events = SortedMerge.merge(List.of(
+                claimRepository.streamDtosForCar(carId, from, null, null, 0L).map(TimelineEventDto::claim),
+                policyRepository.streamDtosForCarByStart(carId, from).map(TimelineEventDto::policyStart),
+                policyRepository.streamDtosForCarByEnd(carId, from).map(TimelineEventDto::policyEnd),
+                expiryLogRepository.streamLoggedForCar(carId, from != null ? from.minusDays(1) : null)
+                        .map(TimelineEventDto::policyExpired)
+        ), TimelineEventDto.ORDER);
+        return after == null ? events : events.dropWhile(e -> !after.isBefore(e));
+    }
+
+    /**
+     * Position in a timeline: the (date, type, id) of the last event returned. Its text form is
+     * {@code date:type:id}, e.g. {@code 2025-03-15:CLAIM:42}.
+     */
+    public record Cursor(LocalDate date, TimelineEventDto.Type type, long id) {
+
+        public static Cursor of(TimelineEventDto e) {
+            return new Cursor(e.date(), e.type(), e.id());
+        }
+
+        public static Cursor parse(String text) {
+            String[] parts = text.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor '" + text + "'");
+            }
+            try {
+                return new Cursor(LocalDate.parse(parts[0]), TimelineEventDto.Type.valueOf(parts[1]), Long.parseLong(parts[2]));
+            } catch (DateTimeParseException | IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid cursor '" + text + "'");
+            }
+        }
+
+        boolean isBefore(TimelineEventDto e) {
+            return TimelineEventDto.ORDER.compare(new TimelineEventDto(date, type, id, null, null, null), e) < 0;
+        }
+
+        @Override
+        public String toString() {
+            return date + ":" + type + ":" + id;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.carins.service;
+
+/**
+ * Published by {@link CarService} inside the writing transaction whenever a car is created or updated
+ * (and by the CSV import for the cars it creates).
+ */
+public record CarWrittenEvent(Long carId) {}
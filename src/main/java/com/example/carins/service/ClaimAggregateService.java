@@ -0,0 +1,272 @@
+package com.example.carins.service;
+
+import com.example.carins.jobs.JobLeaseCoordinator;
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.model.ClaimAggregate.Scope;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimAggregateRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.web.dto.ClaimStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Monthly claim totals (count, sum, max, last claim date) per car and per owner, kept in
+ * {@link ClaimAggregate} rows. Claim writes add to them in the same transaction, so the totals
+ * commit or roll back with the claims. Owner rows always equal the sum of the owner's current cars;
+ * they are recomputed from the car rows when a car changes hands.
+ */
+@Service
+public class ClaimAggregateService {
+    private static final Logger log = LoggerFactory.getLogger(ClaimAggregateService.class);
+
+    static final String REBUILD_JOB = "claim-aggregate-rebuild";
+
+    // An empty month; the id comes from the entity's pooled sequence, whose block it simply skips.
+    private static final String INSERT_ROW =
+            "insert into claim_aggregate (id, scope, scope_id, period_month, claim_count, total_amount, max_amount) " +
+            "values (next value for claim_aggregate_seq, ?, ?, ?, 0, 0, 0)";
+
+    private static final YearMonth MIN_MONTH = YearMonth.of(1, 1);
+    private static final YearMonth MAX_MONTH = YearMonth.of(9999, 12);
+
+    private static final Comparator<Key> KEY_ORDER = Comparator
+            .comparing(Key::scope)
+            .thenComparing(Key::scopeId)
+            .thenComparingInt(Key::period);
+
+    private final ClaimAggregateRepository aggregateRepository;
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final JobLeaseCoordinator leases;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int rebuildPartitions;
+
+    public ClaimAggregateService(ClaimAggregateRepository aggregateRepository,
+                                 CarRepository carRepository,
+                                 OwnerRepository ownerRepository,
+                                 JobLeaseCoordinator leases,
+                                 JdbcTemplate jdbc,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${carins.claims.aggregates.rebuild-partitions:4}") int rebuildPartitions) {
+        this.aggregateRepository = aggregateRepository;
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.leases = leases;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.rebuildPartitions = Math.max(1, rebuildPartitions);
+    }
+
+    /**
+     * Adds claims to their cars' and owners' months. Runs in the caller's transaction.
+     * Rows are updated in key order, so concurrent writers always lock them in the same order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<ClaimEntry> claims) {
+        TreeMap<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (ClaimEntry c : claims) {
+            int period = ClaimAggregate.periodOf(c.claimDate());
+            deltas.computeIfAbsent(new Key(Scope.CAR, c.carId(), period), k -> new Delta()).add(c);
+            deltas.computeIfAbsent(new Key(Scope.OWNER, c.ownerId(), period), k -> new Delta()).add(c);
+        }
+        deltas.forEach((key, d) -> {
+            if (increment(key, d) == 0) {
+                createRow(key);
+                if (increment(key, d) != 1) {
+                    throw new IllegalStateException("Claim aggregate " + key + " could not be updated");
+                }
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ClaimEntry claim) {
+        recordAll(List.of(claim));
+    }
+
+    /**
+     * Recomputes both owners' rows from their cars after a car moved from one to the other.
+     * The ownership change must already be flushed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ownerChanged(Long previousOwnerId, Long newOwnerId) {
+        // Lower id first, like recordAll, so concurrent transfers lock owner rows in the same order.
+        long first = Math.min(previousOwnerId, newOwnerId);
+        long second = Math.max(previousOwnerId, newOwnerId);
+        rebuildOwners(first, first);
+        rebuildOwners(second, second);
+    }
+
+    /**
+     * Totals for a car or owner over the months {@code from}..{@code to} (inclusive; open when null).
+     */
+    @Transactional(readOnly = true)
+    public ClaimStatsDto stats(Scope scope, Long id, YearMonth from, YearMonth to) {
+        boolean exists = scope == Scope.CAR ? carRepository.existsById(id) : ownerRepository.existsById(id);
+        if (!exists) {
+            throw new NoSuchElementException((scope == Scope.CAR ? "Car" : "Owner") + " with id " + id + " not found!");
+        }
+        YearMonth start = from != null ? from : MIN_MONTH;
+        YearMonth end = to != null ? to : MAX_MONTH;
+        Object[] row = aggregateRepository.sumWindow(scope, id, period(start), period(end)).get(0);
+
+        return new ClaimStatsDto(scope.name(), id, from, to,
+                row[0] != null ? ((Number) row[0]).longValue() : 0L,
+                row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO,
+                (BigDecimal) row[2],
+                (LocalDate) row[3]);
+    }
+
+    /**
+     * Recomputes every row from the claim table: car rows in parallel partitions of the car id range,
+     * then owner rows in partitions of the owner id range. Each partition is replaced in its own
+     * transaction. Only one rebuild runs at a time across the cluster.
+     */
+    public RebuildReport rebuild() {
+        Optional<JobLeaseCoordinator.Lease> lease = leases.tryAcquire(REBUILD_JOB);
+        if (lease.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A claim aggregate rebuild is already running");
+        }
+        long started = System.nanoTime();
+        try (JobLeaseCoordinator.Lease held = lease.get();
+             ExecutorService pool = Executors.newFixedThreadPool(rebuildPartitions)) {
+            // Owner rows are derived from car rows, so every car partition must finish first.
+            long carRows = runPartitions(pool, carRepository.findIdRange().get(0), this::rebuildCars);
+            long ownerRows = runPartitions(pool, ownerRepository.findIdRange().get(0), this::rebuildOwners);
+
+            RebuildReport report = new RebuildReport(rebuildPartitions, carRows, ownerRows,
+                    (System.nanoTime() - started) / 1_000_000);
+            log.info("Claim aggregates rebuilt: {} car rows, {} owner rows in {} partitions, {} ms",
+                    carRows, ownerRows, rebuildPartitions, report.millis());
+            return report;
+        }
+    }
+
+    private long runPartitions(ExecutorService pool, Object[] idRange, IdRangeRebuild rebuildPartition) {
+        List<CompletableFuture<Integer>> partitions = new ArrayList<>();
+        for (IdRange range : split(idRange)) {
+            partitions.add(CompletableFuture.supplyAsync(
+                    () -> tx.execute(status -> rebuildPartition.rebuild(range.from(), range.to())), pool));
+        }
+        return partitions.stream().mapToLong(CompletableFuture::join).sum();
+    }
+
+    private int rebuildCars(long fromId, long toId) {
+        aggregateRepository.deleteRange(Scope.CAR, fromId, toId);
+        return aggregateRepository.insertCarTotalsFromClaims(Scope.CAR, fromId, toId);
+    }
+
+    private int rebuildOwners(long fromId, long toId) {
+        aggregateRepository.deleteRange(Scope.OWNER, fromId, toId);
+        return aggregateRepository.insertOwnerTotalsFromCars(Scope.OWNER, Scope.CAR, fromId, toId);
+    }
+
+    // Contiguous id ranges; the first and last are open-ended so rows of deleted ids are cleared too.
+    private List<IdRange> split(Object[] idRange) {
+        if (idRange[0] == null) {
+            return List.of(new IdRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+        long min = (Long) idRange[0];
+        long max = (Long) idRange[1];
+        long step = Math.max(1, (max - min + 1 + rebuildPartitions - 1) / rebuildPartitions);
+        List<IdRange> ranges = new ArrayList<>(rebuildPartitions);
+        long from = Long.MIN_VALUE;
+        for (int i = 1; i < rebuildPartitions && min + i * step <= max; i++) {
+            long boundary = min + i * step;
+            ranges.add(new IdRange(from, boundary - 1));
+            from = boundary;
+        }
+        ranges.add(new IdRange(from, Long.MAX_VALUE));
+        return ranges;
+    }
+
+    private int increment(Key key, Delta d) {
+        return aggregateRepository.increment(key.scope(), key.scopeId(), key.period(), d.count, d.total, d.max, d.last);
+    }
+
+    // Inserted in the caller's transaction, under a savepoint: an insert racing a concurrent first
+    // claim for the same month waits for it, rolls back to the savepoint and then finds its row.
+    // Plain JDBC, since Hibernate marks the whole transaction rollback-only when a statement fails.
+    private void createRow(Key key) {
+        try {
+            jdbc.execute((ConnectionCallback<Void>) con -> {
+                Savepoint savepoint = con.setSavepoint();
+                try (PreparedStatement insert = con.prepareStatement(INSERT_ROW)) {
+                    insert.setString(1, key.scope().name());
+                    insert.setLong(2, key.scopeId());
+                    insert.setInt(3, key.period());
+                    insert.executeUpdate();
+                } catch (SQLException ex) {
+                    con.rollback(savepoint);
+                    throw ex;
+                }
+                con.releaseSavepoint(savepoint);
+                return null;
+            });
+        } catch (DuplicateKeyException ex) {
+            log.debug("Claim aggregate {} was created concurrently", key);
+        }
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    /** A claim as seen by the aggregates. */
+    public record ClaimEntry(Long carId, Long ownerId, LocalDate claimDate, BigDecimal amount) {}
+
+    public record RebuildReport(int partitions, long carRows, long ownerRows, long millis) {}
+
+    private record Key(Scope scope, Long scopeId, int period) {}
+
+    private record IdRange(long from, long to) {}
+
+    @FunctionalInterface
+    private interface IdRangeRebuild {
+        int rebuild(long fromId, long toId);
+    }
+
+    private static final class Delta {
+        long count;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal max;
+        LocalDate last;
+
+        void add(ClaimEntry c) {
+            count++;
+            total = total.add(c.amount());
+            max = max == null || c.amount().compareTo(max) > 0 ? c.amount() : max;
+            last = last == null || c.claimDate().isAfter(last) ? c.claimDate() : last;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.carins.service;
+
+import com.example.carins.analytics.ClaimAmountAnalytics;
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.web.dto.ClaimDto;
+import com.example.carins.web.dto.ClaimImportReportDto;
+import com.example.carins.web.dto.ClaimImportReportDto.RowError;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk claim ingestion from newline-delimited JSON. Rows are parsed and validated one at a time as
+ * they are read, then persisted in batches of {@code batch-size}: each batch resolves its car ids
+ * with one query and commits in its own transaction as one JDBC batch. Rejected rows are reported
+ * and skipped; they never abort the rest of the load.
+ */
+@Service
+public class ClaimImportService {
+    private static final Logger log = LoggerFactory.getLogger(ClaimImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private final CarRepository carRepository;
+    private final ClaimAggregateService claimAggregates;
+    private final ClaimAmountAnalytics claimAmounts;
+    private final ApplicationEventPublisher events;
+    private final EntityManager em;
+    private final Validator validator;
+    private final ObjectReader claimReader;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public ClaimImportService(CarRepository carRepository,
+                              ClaimAggregateService claimAggregates,
+                              ClaimAmountAnalytics claimAmounts,
+                              ApplicationEventPublisher events,
+                              EntityManager em,
+                              Validator validator,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager txManager,
+                              @Value("${carins.claims.import.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("carins.claims.import.batch-size must be positive");
+        }
+        this.carRepository = carRepository;
+        this.claimAggregates = claimAggregates;
+        this.claimAmounts = claimAmounts;
+        this.events = events;
+        this.em = em;
+        this.validator = validator;
+        this.claimReader = objectMapper.readerFor(ClaimDto.class);
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = batchSize;
+    }
+
+    public ClaimImportReportDto importClaims(BufferedReader lines) throws IOException {
+        long started = System.nanoTime();
+        Report report = new Report();
+        List<Row> batch = new ArrayList<>(batchSize);
+
+        long lineNo = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.rows++;
+            ClaimDto claim = parse(lineNo, line, report);
+            if (claim == null) {
+                continue;
+            }
+            batch.add(new Row(lineNo, claim));
+            if (batch.size() == batchSize) {
+                persist(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            persist(batch, report);
+        }
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Claim import: {} rows, {} created, {} rejected in {} ms",
+                report.rows, report.created, report.rejected, millis);
+        return new ClaimImportReportDto(report.rows, report.created, report.rejected, millis,
+                List.copyOf(report.errors), report.rejected > report.errors.size());
+    }
+
+    private ClaimDto parse(long lineNo, String line, Report report) {
+        ClaimDto claim;
+        try {
+            claim = claimReader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            report.reject(lineNo, Map.of("row", "Malformed claim: " + ex.getOriginalMessage()));
+            return null;
+        }
+        if (claim == null) {
+            report.reject(lineNo, Map.of("row", "Claim must not be null"));
+            return null;
+        }
+        Set<ConstraintViolation<ClaimDto>> violations = validator.validate(claim);
+        if (!violations.isEmpty()) {
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (ConstraintViolation<ClaimDto> v : violations) {
+                errors.put(v.getPropertyPath().toString(), v.getMessage());
+            }
+            report.reject(lineNo, errors);
+            return null;
+        }
+        return claim;
+    }
+
+    private void persist(List<Row> batch, Report report) {
+        Set<Long> carIds = new HashSet<>();
+        for (Row r : batch) {
+            carIds.add(r.claim().carId());
+        }
+        // Resolves existence and the owners the claims count towards in one query.
+        Map<Long, Long> ownerByCar = new HashMap<>();
+        for (Object[] row : carRepository.findOwnerIds(carIds)) {
+            ownerByCar.put((Long) row[0], (Long) row[1]);
+        }
+        List<Row> accepted = new ArrayList<>(batch.size());
+        for (Row r : batch) {
+            if (ownerByCar.containsKey(r.claim().carId())) {
+                accepted.add(r);
+            } else {
+                report.reject(r.line(), Map.of("carId", "Car with id " + r.claim().carId() + " not found!"));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            tx.executeWithoutResult(status -> {
+                em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                List<ClaimAggregateService.ClaimEntry> entries = new ArrayList<>(accepted.size());
+                List<Long> ids = new ArrayList<>(accepted.size());
+                for (Row r : accepted) {
+                    ClaimDto c = r.claim();
+                    Claim claim = new Claim(em.getReference(Car.class, c.carId()), c.claimDate(), c.description(), c.amount());
+                    em.persist(claim);
+                    ids.add(claim.getId());
+                    entries.add(new ClaimAggregateService.ClaimEntry(
+                            c.carId(), ownerByCar.get(c.carId()), c.claimDate(), c.amount()));
+                }
+                em.flush();
+                claimAggregates.recordAll(entries);
+                claimAmounts.record(ids);
+                events.publishEvent(new ClaimsWrittenEvent(List.copyOf(ownerByCar.keySet())));
+                em.clear();
+            });
+            report.created += accepted.size();
+        } catch (DataAccessException ex) {
+            // The batch rolled back as a whole (e.g. a car deleted meanwhile); reject it and go on with the next one.
+            log.warn("Claim import batch starting at line {} failed", accepted.get(0).line(), ex);
+            String message = "Batch failed to persist: " + ex.getMostSpecificCause().getMessage();
+            for (Row r : accepted) {
+                report.reject(r.line(), Map.of("row", message));
+            }
+        }
+    }
+
+    private record Row(long line, ClaimDto claim) {}
+
+    private static final class Report {
+        long rows;
+        long created;
+        long rejected;
+        final List<RowError> errors = new ArrayList<>();
+
+        void reject(long line, Map<String, String> messages) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, messages));
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.carins.service;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link CarService} and {@link ClaimImportService} inside the writing transaction when claims
+ * are stored for the given cars.
+ */
+public record ClaimsWrittenEvent(Collection<Long> carIds) {}
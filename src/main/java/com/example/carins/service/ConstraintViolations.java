@@ -0,0 +1,24 @@
+package com.example.carins.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+final class ConstraintViolations {
+
+    private ConstraintViolations() {}
+
+    /**
+     * Whether {@code ex} was caused by the named constraint. Databases decorate the name
+     * (H2 reports e.g. {@code PUBLIC.UK_CAR_VIN_INDEX_1}), so this matches on containment.
+     */
+    static boolean isViolationOf(DataIntegrityViolationException ex, String constraintName) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+                return cve.getConstraintName().toLowerCase(Locale.ROOT).contains(constraintName.toLowerCase(Locale.ROOT));
+            }
+        }
+        return false;
+    }
+}
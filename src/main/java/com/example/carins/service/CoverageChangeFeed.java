@@ -0,0 +1,104 @@
+package com.example.carins.service;
+
+import com.example.carins.model.CoverageChange;
+import com.example.carins.repo.CoverageChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the in-memory coverage indexes of every node in step with policy and car writes made on
+ * other nodes. Writers {@link #record} the cars they touched in {@code coverage_change}, inside
+ * their own transaction; each node {@link #poll}s that table every {@code refresh-interval} and
+ * publishes a {@link CoverageChangedEvent} for the cars changed since its previous poll.
+ * <p>
+ * A row becomes visible at commit but carries the writer's clock at {@link #record}, so each poll
+ * re-reads {@code refresh-overlap} before the previous one, skipping rows it already published.
+ * Transactions longer than the overlap, or clock skew between nodes beyond it, can be missed.
+ * Rows older than {@code change-retention} are pruned; a node that did not poll for that long
+ * reloads everything.
+ */
+@Component
+public class CoverageChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(CoverageChangeFeed.class);
+
+    private final CoverageChangeRepository changeRepository;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final Duration overlap;
+    private final Duration retention;
+
+    // Guarded by this: poll() may also be called directly, e.g. from tests.
+    private Instant polledAt = Instant.now();
+    private Set<Long> published = Set.of();
+
+    public CoverageChangeFeed(CoverageChangeRepository changeRepository,
+                              ApplicationEventPublisher events,
+                              PlatformTransactionManager txManager,
+                              @Value("${carins.coverage.refresh-overlap:PT1M}") Duration overlap,
+                              @Value("${carins.coverage.change-retention:PT1H}") Duration retention) {
+        if (retention.compareTo(overlap.multipliedBy(2)) < 0) {
+            throw new IllegalArgumentException("carins.coverage.change-retention must be at least twice the refresh-overlap");
+        }
+        this.changeRepository = changeRepository;
+        this.events = events;
+        this.tx = new TransactionTemplate(txManager);
+        this.overlap = overlap;
+        this.retention = retention;
+    }
+
+    /**
+     * Records that the policies of these cars changed (or the cars were created), as part of the
+     * current transaction if there is one.
+     */
+    public void record(Long... carIds) {
+        Instant now = Instant.now();
+        List<CoverageChange> changes = new ArrayList<>(carIds.length);
+        for (Long carId : new LinkedHashSet<>(List.of(carIds))) {
+            changes.add(new CoverageChange(carId, now));
+        }
+        changeRepository.saveAll(changes);
+    }
+
+    @Scheduled(fixedDelayString = "${carins.coverage.refresh-interval:PT10S}")
+    public synchronized void poll() {
+        Instant started = Instant.now();
+        Instant previous = polledAt;
+        if (Duration.between(previous, started).compareTo(retention.minus(overlap)) > 0) {
+            log.warn("Coverage changes not polled since {}, older ones may be pruned; reloading every car", previous);
+            events.publishEvent(CoverageChangedEvent.everything());
+            published = Set.of();
+        } else {
+            List<CoverageChange> changes = tx.execute(status -> changeRepository.findChangedSince(previous.minus(overlap)));
+            Set<Long> ids = new HashSet<>();
+            Set<Long> carIds = new HashSet<>();
+            for (CoverageChange c : changes) {
+                ids.add(c.getId());
+                if (!published.contains(c.getId())) {
+                    carIds.add(c.getCarId());
+                }
+            }
+            if (!carIds.isEmpty()) {
+                log.debug("Reloading coverage of {} cars changed since {}", carIds.size(), previous.minus(overlap));
+                events.publishEvent(new CoverageChangedEvent(Set.copyOf(carIds)));
+            }
+            published = ids;
+        }
+        // Only moves on once the listeners are done, so a failed reload is retried by the next poll.
+        polledAt = started;
+        tx.executeWithoutResult(status -> changeRepository.deleteOlderThan(started.minus(retention)));
+    }
+}
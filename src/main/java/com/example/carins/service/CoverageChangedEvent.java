@@ -0,0 +1,18 @@
+package com.example.carins.service;
+
+import java.util.Set;
+
+/**
+ * Published by {@link CoverageChangeFeed} with the cars whose policies changed on any node since its
+ * previous poll. {@code carIds} is {@code null} when changes may have been missed and every car must be reloaded.
+ */
+public record CoverageChangedEvent(Set<Long> carIds) {
+
+    static CoverageChangedEvent everything() {
+        return new CoverageChangedEvent(null);
+    }
+
+    public boolean isEverything() {
+        return carIds == null;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.web.dto.CoverageGapsDto;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Finds the days in a date range on which cars had no active policy. Policies are read ordered by
+ * {@code (car_id, start_date)} and each car's are fed once through a {@link CoverageSweep}.
+ * Only the car being swept is held in memory, so the fleet-wide report streams in constant memory
+ * regardless of fleet size.
+ */
+@Service
+public class CoverageGapService {
+
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+
+    public CoverageGapService(CarRepository carRepository, InsurancePolicyRepository policyRepository) {
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public CoverageGapsDto gaps(Long carId, LocalDate from, LocalDate to) {
+        Car car = carRepository.findById(carId)
+                .orElseThrow(() -> new NoSuchElementException("Car with id " + carId + " not found!"));
+        CoverageSweep sweep = new CoverageSweep(from, to);
+        for (InsurancePolicyDto p : policyRepository.findOverlapping(carId, from, to, 0L, Limit.unlimited())) {
+            sweep.cover(p.startDate(), p.endDate());
+        }
+        return toDto(car.getId(), car.getVin(), from, to, sweep.finish());
+    }
+
+    /**
+     * Reports every car that was uninsured on at least one day of {@code [from, to]}, in car id order.
+     */
+    @Transactional(readOnly = true)
+    public void forEachUninsuredCar(LocalDate from, LocalDate to, Consumer<CoverageGapsDto> action) {
+        try (Stream<Object[]> rows = policyRepository.streamCoveragePeriods(from, to)) {
+            Long carId = null;
+            String vin = null;
+            CoverageSweep sweep = null;
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Long rowCarId = (Long) row[0];
+                if (!rowCarId.equals(carId)) {
+                    emitIfUninsured(sweep, carId, vin, from, to, action);
+                    carId = rowCarId;
+                    vin = (String) row[1];
+                    sweep = new CoverageSweep(from, to);
+                }
+                if (row[2] != null) {
+                    sweep.cover((LocalDate) row[2], (LocalDate) row[3]);
+                }
+            }
+            emitIfUninsured(sweep, carId, vin, from, to, action);
+        }
+    }
+
+    private static void emitIfUninsured(CoverageSweep sweep, Long carId, String vin, LocalDate from, LocalDate to,
+                                        Consumer<CoverageGapsDto> action) {
+        if (sweep != null) {
+            CoverageSweep.Result gaps = sweep.finish();
+            if (!gaps.gaps().isEmpty()) {
+                action.accept(toDto(carId, vin, from, to, gaps));
+            }
+        }
+    }
+
+    private static CoverageGapsDto toDto(Long carId, String vin, LocalDate from, LocalDate to, CoverageSweep.Result gaps) {
+        return new CoverageGapsDto(carId, vin, from, to, gaps.uninsuredDays(), gaps.gaps());
+    }
+}
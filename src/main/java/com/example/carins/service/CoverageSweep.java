@@ -0,0 +1,76 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.CoverageGapsDto.Gap;
+import com.example.carins.web.dto.InsurancePolicyDto;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Gap sweep over one car's policies in {@code [from, to]}, fed in start date order; policies may
+ * overlap. A cursor holds the first day not yet known to be covered, a policy starting after it opens
+ * a gap, and its end moves the cursor past the covered days.
+ */
+public final class CoverageSweep {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<Gap> gaps = new ArrayList<>();
+    private long uninsuredDays;
+    // First day that may still be uncovered; null once everything up to 'to' is covered.
+    private LocalDate next;
+
+    public CoverageSweep(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+        this.next = from;
+    }
+
+    /** Sweeps policies in any order. */
+    public static Result of(List<InsurancePolicyDto> policies, LocalDate from, LocalDate to) {
+        List<InsurancePolicyDto> sorted = new ArrayList<>(policies);
+        sorted.sort(Comparator.comparing(InsurancePolicyDto::startDate));
+        CoverageSweep sweep = new CoverageSweep(from, to);
+        for (InsurancePolicyDto p : sorted) {
+            sweep.cover(p.startDate(), p.endDate());
+        }
+        return sweep.finish();
+    }
+
+    /** Covers {@code [start, end]}; a null end is open-ended. Starts must not decrease. */
+    public void cover(LocalDate start, LocalDate end) {
+        if (next == null || start.isAfter(to)) {
+            return;
+        }
+        if (start.isAfter(next)) {
+            gap(next, start.minusDays(1));
+        }
+        if (end == null || !end.isBefore(to)) {
+            next = null;
+        } else if (!end.isBefore(next)) {
+            next = end.plusDays(1);
+        }
+    }
+
+    public Result finish() {
+        if (next != null) {
+            gap(next, to);
+            next = null;
+        }
+        return new Result(List.copyOf(gaps), uninsuredDays);
+    }
+
+    private void gap(LocalDate start, LocalDate end) {
+        if (!start.isAfter(end)) {
+            long days = ChronoUnit.DAYS.between(start, end) + 1;
+            gaps.add(new Gap(start, end, days));
+            uninsuredDays += days;
+        }
+    }
+
+    /** The uncovered intervals in date order, and the days they add up to. */
+    public record Result(List<Gap> gaps, long uninsuredDays) {}
+}
@@ -5,27 +5,59 @@ import com.example.carins.model.InsurancePolicy;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class InsurancePolicyService {
 
     private final InsurancePolicyRepository policyRepository;
     private final CarRepository carRepository;
-
-
-    public InsurancePolicyService(CarRepository carRepository, InsurancePolicyRepository policyRepository) {
+    private final PolicyIntervalIndex policyIndex;
+    private final ApplicationEventPublisher events;
+    private final PolicyOverlapGuard overlapGuard;
+    private final CoverageChangeFeed coverageChanges;
+    private final TransactionTemplate tx;
+
+    public InsurancePolicyService(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                                  PolicyIntervalIndex policyIndex, ApplicationEventPublisher events,
+                                  PolicyOverlapGuard overlapGuard, CoverageChangeFeed coverageChanges,
+                                  PlatformTransactionManager txManager) {
         this.policyRepository = policyRepository;
         this.carRepository = carRepository;
+        this.policyIndex = policyIndex;
+        this.events = events;
+        this.overlapGuard = overlapGuard;
+        this.coverageChanges = coverageChanges;
+        this.tx = new TransactionTemplate(txManager);
     }
 
-    public List<InsurancePolicy> listInsurances() {
-        return policyRepository.findAll();
+    /**
+     * Keyset page of policies ordered by id, optionally filtered by provider and by overlap with [from, to].
+     */
+    @Transactional(readOnly = true)
+    public List<InsurancePolicyDto> listInsurances(Long afterId, String provider, LocalDate from, LocalDate to, int limit) {
+        return policyRepository.findDtoPageAfter(afterId != null ? afterId : 0L, provider, from, to, Limit.of(limit));
+    }
+
+    /**
+     * Streams the filtered book as DTO projections; no entity or car proxy is ever hydrated.
+     */
+    @Transactional(readOnly = true)
+    public void forEachInsurance(String provider, LocalDate from, LocalDate to, Consumer<InsurancePolicyDto> action) {
+        try (Stream<InsurancePolicyDto> policies = policyRepository.streamDtos(0L, provider, from, to)) {
+            policies.forEach(action);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -36,39 +68,59 @@ public class InsurancePolicyService {
         return toDto(policy);
     }
 
-    @Transactional
+    /**
+     * Creates a policy unless it overlaps another policy of the car (409). Writes for the same car are serialized,
+     * see {@link PolicyOverlapGuard}.
+     */
     public InsurancePolicyDto create(InsurancePolicyDto dto) {
-        Car car = carRepository.findById(dto.carId())
-                .orElseThrow(() -> new NoSuchElementException("Car with id " + dto.carId() + " not found!"));
-
-        if (dto.startDate().isAfter(dto.endDate())) {
-            throw new IllegalArgumentException("Start date must not be after end date");
-        }
+        return overlapGuard.withCarLock(dto.carId(), () -> tx.execute(status -> {
+            Car car = carRepository.findByIdForUpdate(dto.carId())
+                    .orElseThrow(() -> new NoSuchElementException("Car with id " + dto.carId() + " not found!"));
 
-        InsurancePolicy policy = new InsurancePolicy(car, dto.provider(), dto.startDate(), dto.endDate());
-        return toDto(policyRepository.save(policy));
+            if (dto.startDate().isAfter(dto.endDate())) {
+                throw new IllegalArgumentException("Start date must not be after end date");
+            }
+            overlapGuard.check(car.getId(), dto.startDate(), dto.endDate(), null);
+
+            InsurancePolicy policy = new InsurancePolicy(car, dto.provider(), dto.startDate(), dto.endDate());
+            InsurancePolicyDto saved = toDto(policyRepository.save(policy));
+            policyIndex.upsertPolicy(null, saved);
+            coverageChanges.record(car.getId());
+            events.publishEvent(new PolicyWrittenEvent(null, saved));
+            return saved;
+        }));
     }
 
-    @Transactional
+    /**
+     * Updates a policy, possibly moving it to another car, unless the result overlaps another policy of that car (409).
+     */
     public InsurancePolicyDto update(Long id, InsurancePolicyDto dto) {
-        InsurancePolicy existing = policyRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Insurance policy with id " + id + " not found!"));
+        Long lockCarId = dto.carId() != null ? dto.carId() : policyRepository.findCarIdById(id).orElse(null);
+        return overlapGuard.withCarLock(lockCarId, () -> tx.execute(status -> {
+            InsurancePolicy existing = policyRepository.findById(id)
+                    .orElseThrow(() -> new NoSuchElementException("Insurance policy with id " + id + " not found!"));
 
-        if (dto.startDate().isAfter(dto.endDate())) {
-            throw new IllegalArgumentException("Start date must not be after end date");
-        }
+            if (dto.startDate().isAfter(dto.endDate())) {
+                throw new IllegalArgumentException("Start date must not be after end date");
+            }
 
-        if (dto.carId() != null) {
-            Car car = carRepository.findById(dto.carId())
-                    .orElseThrow(() -> new NoSuchElementException("Car with id " + dto.carId() + " not found!"));
-            existing.setCar(car);
-        }
+            Long previousCarId = existing.getCar() != null ? existing.getCar().getId() : null;
+            Long targetCarId = dto.carId() != null ? dto.carId() : previousCarId;
+            Car car = carRepository.findByIdForUpdate(targetCarId)
+                    .orElseThrow(() -> new NoSuchElementException("Car with id " + targetCarId + " not found!"));
+            overlapGuard.check(car.getId(), dto.startDate(), dto.endDate(), id);
 
-        existing.setProvider(dto.provider());
-        existing.setStartDate(dto.startDate());
-        existing.setEndDate(dto.endDate());
-
-        return toDto(policyRepository.save(existing));
+            existing.setCar(car);
+            existing.setProvider(dto.provider());
+            existing.setStartDate(dto.startDate());
+            existing.setEndDate(dto.endDate());
+
+            InsurancePolicyDto saved = toDto(policyRepository.save(existing));
+            policyIndex.upsertPolicy(previousCarId, saved);
+            coverageChanges.record(previousCarId, car.getId());
+            events.publishEvent(new PolicyWrittenEvent(previousCarId, saved));
+            return saved;
+        }));
     }
 
     private InsurancePolicyDto toDto(InsurancePolicy p) {
@@ -1,22 +1,30 @@
 package com.example.carins.service;
 
 import com.example.carins.model.Owner;
+import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.OwnerRepository;
 import com.example.carins.web.dto.OwnerDto;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 @Service
 public class OwnerService {
 
     private final OwnerRepository ownerRepository;
+    private final CarRepository carRepository;
+    private final ApplicationEventPublisher events;
 
-    public OwnerService(OwnerRepository ownerRepository) {
+    public OwnerService(OwnerRepository ownerRepository, CarRepository carRepository, ApplicationEventPublisher events) {
         this.ownerRepository = ownerRepository;
+        this.carRepository = carRepository;
+        this.events = events;
     }
 
 
@@ -30,13 +38,9 @@ public class OwnerService {
 
     @Transactional
     public OwnerDto create(OwnerDto dto) {
-        String email = dto.email().trim().toLowerCase();
-        if (ownerRepository.existsByEmailIgnoreCase(email)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Owner with email " + email + " already exists!");
-        }
-
-        Owner o = new Owner(dto.name(), email);
-        return ownerToDto(ownerRepository.save(o));
+        Owner saved = saveUniqueEmail(new Owner(dto.name(), dto.email()));
+        events.publishEvent(new OwnerWrittenEvent(saved.getId(), List.of()));
+        return ownerToDto(saved);
     }
 
     @Transactional
@@ -44,15 +48,24 @@ public class OwnerService {
         Owner existing = ownerRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Owner with id " + id + " not found!"));
 
-        String email = dto.email().trim().toLowerCase();
-        if (ownerRepository.existsByEmailIgnoreCaseAndIdNot(email, id)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Owner with email " + email + " already exists!");
-        }
-
         existing.setName(dto.name());
-        existing.setEmail(email);
+        existing.setEmail(dto.email());
 
-        return ownerToDto(ownerRepository.save(existing));
+        Owner saved = saveUniqueEmail(existing);
+        events.publishEvent(new OwnerWrittenEvent(saved.getId(), carRepository.findIdsByOwnerId(saved.getId())));
+        return ownerToDto(saved);
+    }
+
+    // The unique constraint on owner.email is the duplicate check; flushing here surfaces it as a 409.
+    private Owner saveUniqueEmail(Owner owner) {
+        try {
+            return ownerRepository.saveAndFlush(owner);
+        } catch (DataIntegrityViolationException ex) {
+            if (ConstraintViolations.isViolationOf(ex, Owner.UNIQUE_EMAIL)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Owner with email " + owner.getEmail() + " already exists!");
+            }
+            throw ex;
+        }
     }
 
     private OwnerDto ownerToDto(Owner o) {
@@ -0,0 +1,9 @@
+package com.example.carins.service;
+
+import java.util.List;
+
+/**
+ * Published by {@link OwnerService} inside the writing transaction whenever an owner is created or updated.
+ * {@code carIds} are the owner's cars as read in that transaction, so listeners need not query after commit.
+ */
+public record OwnerWrittenEvent(Long ownerId, List<Long> carIds) {}
@@ -0,0 +1,311 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of policy validity intervals, keyed by car id.
+ * Each car holds its policies as epoch-day ranges in primitive arrays sorted by start day,
+ * so a validity check is a map lookup plus a binary search.
+ * Writes on this node update it after commit through {@link InsurancePolicyService} / {@link CarService};
+ * writes on other nodes reach it as {@link CoverageChangedEvent}s, which reload the cars concerned.
+ */
+@Component
+public class PolicyIntervalIndex {
+    private static final Logger log = LoggerFactory.getLogger(PolicyIntervalIndex.class);
+
+    static final int OPEN_END = Integer.MAX_VALUE;
+
+    private final InsurancePolicyRepository policyRepository;
+    private final CarRepository carRepository;
+    private final TransactionTemplate readOnlyTx;
+
+    private volatile ConcurrentHashMap<Long, CarIntervals> byCar = new ConcurrentHashMap<>();
+    // Cars written while a rebuild reads; they are reloaded once the rebuilt map is swapped in.
+    private volatile Set<Long> touchedDuringRebuild;
+    private volatile boolean loaded;
+
+    public PolicyIntervalIndex(InsurancePolicyRepository policyRepository,
+                               CarRepository carRepository,
+                               PlatformTransactionManager txManager) {
+        this.policyRepository = policyRepository;
+        this.carRepository = carRepository;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    // Runs after the ApplicationRunners, so open-ended sample policies are already fixed up.
+    // Builds a fresh map and swaps it in, so writes committed meanwhile are not overwritten by the
+    // older read: the cars they touched are re-read after the swap.
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Set<Long> touched = ConcurrentHashMap.newKeySet();
+        ConcurrentHashMap<Long, CarIntervals> fresh = new ConcurrentHashMap<>();
+        touchedDuringRebuild = touched;
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<Long> ids = carRepository.streamAllIds()) {
+                    ids.forEach(id -> fresh.put(id, CarIntervals.EMPTY));
+                }
+                try (Stream<InsurancePolicyDto> policies = policyRepository.streamAllOrderByCar()) {
+                    loadSorted(policies.iterator(), fresh);
+                }
+            });
+            byCar = fresh;
+        } finally {
+            touchedDuringRebuild = null;
+        }
+        if (!touched.isEmpty()) {
+            reload(touched);
+        }
+        loaded = true;
+        log.info("Policy interval index built for {} cars in {} ms ({} reloaded after concurrent writes)",
+                fresh.size(), (System.nanoTime() - started) / 1_000_000, touched.size());
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns whether the car has a policy covering {@code date}, or {@code null} when the car is not indexed.
+     */
+    public Boolean isCovered(Long carId, LocalDate date) {
+        CarIntervals intervals = byCar.get(carId);
+        if (intervals == null) {
+            return null;
+        }
+        return intervals.covers(toDay(date));
+    }
+
+    /**
+     * Loads a single car's policies; used when a car was written outside the services.
+     */
+    public void loadCar(Long carId, List<InsurancePolicyDto> policies) {
+        CarIntervals intervals = CarIntervals.EMPTY;
+        for (InsurancePolicyDto p : policies) {
+            intervals = intervals.with(p.id(), toDay(p.startDate()), toEnd(p.endDate()));
+        }
+        // An entry written meanwhile by the services is at least as fresh as this read.
+        byCar.putIfAbsent(carId, intervals);
+    }
+
+    /**
+     * Replaces the intervals of the given cars with what the database holds now.
+     */
+    @EventListener
+    public void onCoverageChanged(CoverageChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        if (event.isEverything()) {
+            rebuild();
+            return;
+        }
+        event.carIds().forEach(this::touched);
+        reload(event.carIds());
+    }
+
+    public void registerCar(Long carId) {
+        afterCommit(() -> {
+            touched(carId);
+            byCar.putIfAbsent(carId, CarIntervals.EMPTY);
+        });
+    }
+
+    public void upsertPolicy(Long previousCarId, InsurancePolicyDto policy) {
+        long policyId = policy.id();
+        int start = toDay(policy.startDate());
+        int end = toEnd(policy.endDate());
+        afterCommit(() -> {
+            if (previousCarId != null && !previousCarId.equals(policy.carId())) {
+                touched(previousCarId);
+                byCar.computeIfPresent(previousCarId, (id, ci) -> ci.without(policyId));
+            }
+            touched(policy.carId());
+            byCar.compute(policy.carId(), (id, ci) ->
+                    (ci == null ? CarIntervals.EMPTY : ci.without(policyId)).with(policyId, start, end));
+        });
+    }
+
+    private void reload(Collection<Long> carIds) {
+        List<InsurancePolicyDto> policies = readOnlyTx.execute(status -> policyRepository.findDtosByCarIds(carIds));
+        Map<Long, CarIntervals> reloaded = new HashMap<>();
+        for (Long carId : carIds) {
+            reloaded.put(carId, CarIntervals.EMPTY);
+        }
+        // Sorted by start day, so each with() appends.
+        for (InsurancePolicyDto p : policies) {
+            reloaded.computeIfPresent(p.carId(), (id, ci) -> ci.with(p.id(), toDay(p.startDate()), toEnd(p.endDate())));
+        }
+        byCar.putAll(reloaded);
+    }
+
+    // Recorded before the map is read, so a write landing in a map that is being replaced is re-read.
+    private void touched(Long carId) {
+        Set<Long> touched = touchedDuringRebuild;
+        if (touched != null) {
+            touched.add(carId);
+        }
+    }
+
+    private static void loadSorted(Iterator<InsurancePolicyDto> it, Map<Long, CarIntervals> target) {
+        Long currentCar = null;
+        long[] ids = new long[8];
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int n = 0;
+        while (it.hasNext()) {
+            InsurancePolicyDto p = it.next();
+            if (!p.carId().equals(currentCar)) {
+                if (currentCar != null) {
+                    target.put(currentCar, CarIntervals.of(ids, starts, ends, n));
+                }
+                currentCar = p.carId();
+                n = 0;
+            }
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                starts = Arrays.copyOf(starts, n * 2);
+                ends = Arrays.copyOf(ends, n * 2);
+            }
+            ids[n] = p.id();
+            starts[n] = toDay(p.startDate());
+            ends[n] = toEnd(p.endDate());
+            n++;
+        }
+        if (currentCar != null) {
+            target.put(currentCar, CarIntervals.of(ids, starts, ends, n));
+        }
+    }
+
+    // Index changes must not become visible before the database write does.
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int toDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    private static int toEnd(LocalDate date) {
+        return date == null ? OPEN_END : toDay(date);
+    }
+
+    /**
+     * Immutable per-car snapshot. Policies may overlap, so {@code maxEnd[i]} keeps the
+     * largest end day among the first {@code i + 1} policies.
+     */
+    static final class CarIntervals {
+        static final CarIntervals EMPTY = new CarIntervals(new long[0], new int[0], new int[0]);
+
+        private final long[] policyIds;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnd;
+
+        private CarIntervals(long[] policyIds, int[] starts, int[] ends) {
+            this.policyIds = policyIds;
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnd = new int[ends.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnd[i] = max;
+            }
+        }
+
+        // Expects the first n entries to be sorted by start day already.
+        static CarIntervals of(long[] ids, int[] starts, int[] ends, int n) {
+            return new CarIntervals(Arrays.copyOf(ids, n), Arrays.copyOf(starts, n), Arrays.copyOf(ends, n));
+        }
+
+        boolean covers(int day) {
+            int idx = lastStartingOnOrBefore(day);
+            return idx >= 0 && maxEnd[idx] >= day;
+        }
+
+        CarIntervals with(long policyId, int start, int end) {
+            int n = starts.length;
+            int pos = lastStartingOnOrBefore(start) + 1;
+            long[] newIds = new long[n + 1];
+            int[] newStarts = new int[n + 1];
+            int[] newEnds = new int[n + 1];
+            System.arraycopy(policyIds, 0, newIds, 0, pos);
+            System.arraycopy(starts, 0, newStarts, 0, pos);
+            System.arraycopy(ends, 0, newEnds, 0, pos);
+            newIds[pos] = policyId;
+            newStarts[pos] = start;
+            newEnds[pos] = end;
+            System.arraycopy(policyIds, pos, newIds, pos + 1, n - pos);
+            System.arraycopy(starts, pos, newStarts, pos + 1, n - pos);
+            System.arraycopy(ends, pos, newEnds, pos + 1, n - pos);
+            return new CarIntervals(newIds, newStarts, newEnds);
+        }
+
+        CarIntervals without(long policyId) {
+            for (int i = 0; i < policyIds.length; i++) {
+                if (policyIds[i] == policyId) {
+                    int n = policyIds.length;
+                    long[] newIds = new long[n - 1];
+                    int[] newStarts = new int[n - 1];
+                    int[] newEnds = new int[n - 1];
+                    System.arraycopy(policyIds, 0, newIds, 0, i);
+                    System.arraycopy(starts, 0, newStarts, 0, i);
+                    System.arraycopy(ends, 0, newEnds, 0, i);
+                    System.arraycopy(policyIds, i + 1, newIds, i, n - i - 1);
+                    System.arraycopy(starts, i + 1, newStarts, i, n - i - 1);
+                    System.arraycopy(ends, i + 1, newEnds, i, n - i - 1);
+                    return new CarIntervals(newIds, newStarts, newEnds);
+                }
+            }
+            return this;
+        }
+
+        private int lastStartingOnOrBefore(int day) {
+            int lo = 0;
+            int hi = starts.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi;
+        }
+    }
+}
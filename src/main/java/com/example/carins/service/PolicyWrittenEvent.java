@@ -0,0 +1,9 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.InsurancePolicyDto;
+
+/**
+ * Published by {@link InsurancePolicyService} inside the writing transaction whenever a policy is created or updated.
+ * {@code previousCarId} is the car the policy belonged to before the write, or {@code null} for a new policy.
+ */
+public record PolicyWrittenEvent(Long previousCarId, InsurancePolicyDto policy) {}
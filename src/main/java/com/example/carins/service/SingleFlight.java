@@ -0,0 +1,81 @@
+package com.example.carins.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with equal keys: the first caller runs the load, callers arriving
+ * while it is in flight wait for it and get the same result, or the same exception. Nothing is
+ * kept once the load finishes, so this never serves a result older than the call that asked for it.
+ * <p>
+ * A write should {@link #forget} the loads it makes stale; callers arriving after it start a new
+ * load instead of joining one that may have read the data before the write.
+ * Results are shared between callers and must be immutable.
+ */
+public final class SingleFlight<K, V> {
+
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            // A forget() may already have replaced this flight with a newer one.
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Detaches the in-flight loads whose key matches; their callers still get their results.
+     */
+    public void forget(Predicate<? super K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    public Stats stats() {
+        long total = calls.sum();
+        long joined = coalesced.sum();
+        return new Stats(name, total, total - joined, joined, inFlight.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            // The leader's own exception, so followers see what it saw (e.g. a 404).
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public record Stats(String method, long calls, long loads, long coalesced, int inFlight) {}
+}
@@ -0,0 +1,99 @@
+package com.example.carins.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * K-way merge of streams that are each already sorted by the same comparator. Only the head of each
+ * source is held, in a heap, so the merged stream is lazy and pulls one element per source at a time.
+ * Closing the merged stream closes every source.
+ */
+final class SortedMerge {
+
+    private SortedMerge() {}
+
+    static <T> Stream<T> merge(List<Stream<T>> sources, Comparator<? super T> order) {
+        Iterator<T> merged = new MergeIterator<>(sources, order);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeAll(sources));
+    }
+
+    private static <T> void closeAll(List<Stream<T>> sources) {
+        RuntimeException failure = null;
+        for (Stream<T> s : sources) {
+            try {
+                s.close();
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class MergeIterator<T> implements Iterator<T> {
+        private final List<Stream<T>> sources;
+        private final Comparator<? super T> order;
+        private PriorityQueue<Head<T>> heads;
+
+        MergeIterator(List<Stream<T>> sources, Comparator<? super T> order) {
+            this.sources = sources;
+            this.order = order;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads().isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads().poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            T value = head.value;
+            if (head.source.hasNext()) {
+                head.value = head.source.next();
+                heads.add(head);
+            }
+            return value;
+        }
+
+        // Sources are opened on first use, so building the stream runs no query.
+        private PriorityQueue<Head<T>> heads() {
+            if (heads == null) {
+                heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> order.compare(a.value, b.value));
+                for (Stream<T> s : sources) {
+                    Iterator<T> it = s.iterator();
+                    if (it.hasNext()) {
+                        heads.add(new Head<>(it, it.next()));
+                    }
+                }
+            }
+            return heads;
+        }
+    }
+
+    private static final class Head<T> {
+        final Iterator<T> source;
+        T value;
+
+        Head(Iterator<T> source, T value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.carins.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the API requests running at once when requests run on virtual threads. Tomcat's thread
+ * pool no longer does that, so a burst would otherwise park every request in Hikari's
+ * {@code getConnection} until its 30 s timeout. The limit is {@code requests-per-connection} times
+ * the Hikari pool size (or {@code max-concurrent-requests}); requests beyond it wait in arrival
+ * order for up to {@code timeout}, then get 503 with {@code Retry-After}.
+ * <p>
+ * Streaming (async) responses keep their permit until the response completes.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long timeoutNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionControlFilter(DataSource dataSource,
+                                  @Value("${carins.web.admission.requests-per-connection:4}") int requestsPerConnection,
+                                  @Value("${carins.web.admission.max-concurrent-requests:0}") int maxConcurrentRequests,
+                                  @Value("${carins.web.admission.timeout:PT2S}") Duration timeout) {
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+        this.maxConcurrent = maxConcurrentRequests > 0 ? maxConcurrentRequests : poolSize * requestsPerConnection;
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("carins.web.admission must allow at least one request");
+        }
+        // Fair, so waiting requests are admitted in arrival order and the tail latency stays bounded.
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutNanos = timeout.toNanos();
+        log.info("Virtual-thread requests limited to {} at once ({} pooled connections)", maxConcurrent, poolSize);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!tryEnter()) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests, retry later");
+            return;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable exit = () -> {
+            if (released.compareAndSet(false, true)) {
+                exit();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(exit));
+            } else {
+                exit.run();
+            }
+        }
+    }
+
+    /**
+     * Takes a permit, waiting up to the configured timeout. Every successful call needs one {@link #exit}.
+     */
+    public boolean tryEnter() {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    private record ReleasingListener(Runnable exit) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            exit.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            exit.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            exit.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Another async cycle started; listeners must re-register to hear how it ends.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
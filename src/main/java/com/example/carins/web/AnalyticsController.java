@@ -0,0 +1,33 @@
+package com.example.carins.web;
+
+import com.example.carins.analytics.ClaimAmountAnalytics;
+import com.example.carins.web.dto.ClaimPercentilesDto;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final ClaimAmountAnalytics claimAmounts;
+
+    public AnalyticsController(ClaimAmountAnalytics claimAmounts) {
+        this.claimAmounts = claimAmounts;
+    }
+
+    /**
+     * p50/p95/p99 claim amounts per insurer ({@code by=provider}), car make ({@code by=make}) or
+     * make/model ({@code by=model}), served from memory.
+     */
+    @GetMapping("/claim-amounts")
+    public ClaimPercentilesDto claimAmounts(@RequestParam(defaultValue = "provider") String by) {
+        ClaimAmountAnalytics.Dimension dimension;
+        try {
+            dimension = ClaimAmountAnalytics.Dimension.valueOf(by.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("'by' must be one of provider, make, model");
+        }
+        return claimAmounts.percentiles(dimension);
+    }
+}
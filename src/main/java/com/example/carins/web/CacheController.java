@@ -0,0 +1,34 @@
+package com.example.carins.web;
+
+import com.example.carins.config.SecondLevelCacheStats;
+import com.example.carins.service.CarService;
+import com.example.carins.service.SingleFlight;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final SecondLevelCacheStats secondLevelCache;
+    private final CarService carService;
+
+    public CacheController(SecondLevelCacheStats secondLevelCache, CarService carService) {
+        this.secondLevelCache = secondLevelCache;
+        this.carService = carService;
+    }
+
+    @GetMapping("/stats")
+    public SecondLevelCacheStats.Snapshot stats() {
+        return secondLevelCache.snapshot();
+    }
+
+    /**
+     * Per coalesced service method: calls, database loads actually run, and calls that joined a load in flight.
+     */
+    @GetMapping("/coalescing")
+    public List<SingleFlight.Stats> coalescing() {
+        return carService.coalescingStats();
+    }
+}
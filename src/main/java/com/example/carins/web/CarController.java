@@ -1,40 +1,98 @@
 package com.example.carins.web;
 
-import com.example.carins.model.Car;
-import com.example.carins.model.Claim;
 import com.example.carins.service.CarService;
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.service.CarTimelineService;
+import com.example.carins.service.ClaimAggregateService;
+import com.example.carins.service.ClaimImportService;
+import com.example.carins.service.CoverageGapService;
 import com.example.carins.web.dto.CarDto;
 import com.example.carins.web.dto.ClaimDto;
+import com.example.carins.web.dto.ClaimImportReportDto;
+import com.example.carins.web.dto.ClaimStatsDto;
+import com.example.carins.web.dto.CoverageGapsDto;
+import com.example.carins.web.dto.InsuranceValidityCheckDto;
+import com.example.carins.web.dto.InsuranceValidityResultDto;
+import com.example.carins.web.dto.TimelineEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api")
 public class CarController {
 
     private final CarService service;
+    private final ClaimImportService claimImportService;
+    private final CarTimelineService timelineService;
+    private final ClaimAggregateService claimAggregates;
+    private final CoverageGapService coverageGaps;
+    private final ObjectMapper objectMapper;
+    private final JsonResponseCache responses;
 
     private static final LocalDate minDate = LocalDate.of(1900, 1, 1);
     private static final LocalDate maxDate = LocalDate.of(2100, 12, 31);
+    private static final int maxBatchSize = 10_000;
+    private static final int defaultPageSize = 100;
+    private static final int maxPageSize = 1_000;
 
-    public CarController(CarService service) {
+    public CarController(CarService service, ClaimImportService claimImportService,
+                         CarTimelineService timelineService, ClaimAggregateService claimAggregates,
+                         CoverageGapService coverageGaps, ObjectMapper objectMapper,
+                         JsonResponseCache responses) {
         this.service = service;
+        this.claimImportService = claimImportService;
+        this.timelineService = timelineService;
+        this.claimAggregates = claimAggregates;
+        this.coverageGaps = coverageGaps;
+        this.objectMapper = objectMapper;
+        this.responses = responses;
     }
 
     @GetMapping("/cars")
-    public List<CarDto> getCars() {
-        return service.listCars().stream().map(this::toCarDto).toList();
+    public ResponseEntity<List<CarDto>> getCars(@RequestParam(required = false) Long after,
+                                                @RequestParam(defaultValue = "" + defaultPageSize) int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+
+        List<CarDto> page = service.listCars(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            long next = page.get(page.size() - 1).id();
+            response.header(HttpHeaders.LINK, "</api/cars?after=" + next + "&limit=" + limit + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    @GetMapping(value = "/cars/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCars() {
+        return NdjsonResponses.stream(objectMapper, service::forEachCar);
     }
 
     @GetMapping("/cars/{id}")
-    public ResponseEntity<CarDto> getCar(@PathVariable Long id) {
-        return ResponseEntity.ok(service.findCarById(id));
+    public ResponseEntity<byte[]> getCar(@PathVariable Long id) {
+        return responses.get(JsonResponseCache.Resource.CAR, id, () -> service.findCarById(id));
     }
 
     @PostMapping("/cars")
@@ -53,31 +111,163 @@ public class CarController {
     }
 
     @GetMapping("/cars/{carId}/history")
-    public List<ClaimDto> history(@PathVariable Long carId) {
-        return service.history(carId).stream().map(this::toClaimDto).toList();
+    public ResponseEntity<List<ClaimDto>> history(
+            @PathVariable Long carId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "" + defaultPageSize) int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        if ((afterDate == null) != (afterId == null)) {
+            throw new IllegalArgumentException("'afterDate' and 'afterId' must be given together");
+        }
+        checkRange(from, to);
+
+        List<ClaimDto> page = service.history(carId, from, to, afterDate, afterId, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            ClaimDto last = page.get(page.size() - 1);
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath("/api/cars/{carId}/history")
+                    .queryParam("afterDate", last.claimDate())
+                    .queryParam("afterId", last.id())
+                    .queryParam("limit", limit);
+            if (from != null) next.queryParam("from", from);
+            if (to != null) next.queryParam("to", to);
+            response.header(HttpHeaders.LINK, "<" + next.buildAndExpand(carId).encode().toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page);
     }
 
-    @GetMapping("/cars/{carId}/insurance-valid")
-    public ResponseEntity<?> isInsuranceValid(@PathVariable Long carId, @RequestParam String date) {
-        final LocalDate d;
+    @GetMapping(value = "/cars/{carId}/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistory(
+            @PathVariable Long carId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+        // Checked up front: once streaming has started a 404 can no longer be sent.
+        service.requireCar(carId);
 
-        try {
-            d = LocalDate.parse(date);
-        } catch (DateTimeParseException ex) {
-            throw new IllegalArgumentException("Invalid date format. Use ISO YYYY-MM-DD format");
+        return NdjsonResponses.stream(objectMapper,
+                (Consumer<ClaimDto> row) -> service.forEachClaim(carId, from, to, row));
+    }
+
+    /**
+     * Claims, policy starts and ends, and expiries of a car in chronological order, paged by an opaque cursor.
+     */
+    @GetMapping("/cars/{carId}/timeline")
+    public ResponseEntity<List<TimelineEventDto>> timeline(@PathVariable Long carId,
+                                                           @RequestParam(required = false) String after,
+                                                           @RequestParam(defaultValue = "" + defaultPageSize) int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
         }
+        CarTimelineService.Cursor cursor = after != null ? CarTimelineService.Cursor.parse(after) : null;
 
-        if (d.isBefore(minDate) || d.isAfter(maxDate)) {
-            throw new IllegalArgumentException("Date out of supported range [" + minDate + ", " + maxDate + "]");
+        List<TimelineEventDto> page = timelineService.timeline(carId, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            String next = UriComponentsBuilder.fromPath("/api/cars/{carId}/timeline")
+                    .queryParam("after", CarTimelineService.Cursor.of(page.get(page.size() - 1)))
+                    .queryParam("limit", limit)
+                    .buildAndExpand(carId).encode().toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
         }
+        return response.body(page);
+    }
+
+    @GetMapping(value = "/cars/{carId}/timeline/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTimeline(@PathVariable Long carId) {
+        service.requireCar(carId);
+        return NdjsonResponses.stream(objectMapper,
+                (Consumer<TimelineEventDto> row) -> timelineService.forEachEvent(carId, row));
+    }
+
+    /**
+     * Claim count, total, maximum and last claim date over the calendar months {@code from}..{@code to}
+     * (inclusive, either side optional), served from the maintained monthly aggregates.
+     */
+    @GetMapping("/cars/{carId}/claim-stats")
+    public ClaimStatsDto claimStats(@PathVariable Long carId,
+                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        checkMonths(from, to);
+        return claimAggregates.stats(ClaimAggregate.Scope.CAR, carId, from, to);
+    }
+
+    /**
+     * The days in {@code [from, to]} on which the car had no active policy.
+     */
+    @GetMapping("/cars/{carId}/coverage-gaps")
+    public CoverageGapsDto coverageGaps(@PathVariable Long carId,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+        return coverageGaps.gaps(carId, from, to);
+    }
+
+    /**
+     * Every car that was uninsured on some day of {@code [from, to]}, with its gaps, as NDJSON in car id order.
+     */
+    @GetMapping(value = "/cars/coverage-gaps/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCoverageGaps(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+        return NdjsonResponses.stream(objectMapper,
+                (Consumer<CoverageGapsDto> row) -> coverageGaps.forEachUninsuredCar(from, to, row));
+    }
+
+    @GetMapping("/cars/{carId}/insurance-valid")
+    public ResponseEntity<?> isInsuranceValid(@PathVariable Long carId, @RequestParam String date) {
+        final LocalDate d = parseDate(date);
 
         boolean valid = service.isInsuranceValid(carId, d);
         return ResponseEntity.ok(new InsuranceValidityResponse(carId, d.toString(), valid));
     }
 
+    @PostMapping("/cars/insurance-valid:batch")
+    public List<InsuranceValidityResultDto> isInsuranceValidBatch(@RequestBody List<InsuranceValidityCheckDto> checks) {
+        if (checks.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + maxBatchSize + " items");
+        }
+
+        // Malformed items are answered here; the rest are resolved together by the service.
+        InsuranceValidityResultDto[] results = new InsuranceValidityResultDto[checks.size()];
+        List<Integer> positions = new ArrayList<>(checks.size());
+        List<CarService.ValidityQuery> queries = new ArrayList<>(checks.size());
+        for (int i = 0; i < checks.size(); i++) {
+            InsuranceValidityCheckDto c = checks.get(i);
+            if (c == null) {
+                results[i] = InsuranceValidityResultDto.invalid(null, null, null, "Item must not be null");
+                continue;
+            }
+            if (c.carId() == null && (c.vin() == null || c.vin().isBlank())) {
+                results[i] = InsuranceValidityResultDto.invalid(null, c.vin(), c.date(), "Either carId or vin is required");
+                continue;
+            }
+            try {
+                queries.add(new CarService.ValidityQuery(c.carId(), c.vin(), parseDate(c.date())));
+                positions.add(i);
+            } catch (IllegalArgumentException ex) {
+                results[i] = InsuranceValidityResultDto.invalid(c.carId(), c.vin(), c.date(), ex.getMessage());
+            }
+        }
+
+        if (!queries.isEmpty()) {
+            List<InsuranceValidityResultDto> resolved = service.isInsuranceValid(queries);
+            for (int j = 0; j < resolved.size(); j++) {
+                results[positions.get(j)] = resolved.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
     @GetMapping("/claims/{id}")
-    public ResponseEntity<ClaimDto> getInsurance(@PathVariable Long id) {
-        return ResponseEntity.ok(service.findClaimById(id));
+    public ResponseEntity<byte[]> getInsurance(@PathVariable Long id) {
+        return responses.get(JsonResponseCache.Resource.CLAIM, id, () -> service.findClaimById(id));
     }
 
     @PostMapping("/cars/{carId}/claims")
@@ -90,22 +280,45 @@ public class CarController {
                 .body(c);
     }
 
-    private CarDto toCarDto(Car c) {
-        var o = c.getOwner();
-        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
-                o != null ? o.getId() : null,
-                o != null ? o.getName() : null,
-                o != null ? o.getEmail() : null);
+    /**
+     * Imports claims sent as newline-delimited JSON, one {@link ClaimDto} per line. Invalid rows are
+     * reported by line number and skipped; valid rows are stored regardless.
+     */
+    @PostMapping(value = "/claims:bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ClaimImportReportDto importClaims(InputStream body) throws IOException {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return claimImportService.importClaims(lines);
+        }
     }
 
-    private ClaimDto toClaimDto(Claim c) {
-        var car = c.getCar();
-        return new ClaimDto(
-                c.getId(),
-                car != null ? car.getId() : null,
-                c.getClaimDate(),
-                c.getDescription(),
-                c.getAmount());
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+    }
+
+    static void checkMonths(YearMonth from, YearMonth to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date must not be null");
+        }
+
+        final LocalDate d;
+        try {
+            d = LocalDate.parse(date);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid date format. Use ISO YYYY-MM-DD format");
+        }
+
+        if (d.isBefore(minDate) || d.isAfter(maxDate)) {
+            throw new IllegalArgumentException("Date out of supported range [" + minDate + ", " + maxDate + "]");
+        }
+        return d;
     }
 
     public record InsuranceValidityResponse(Long carId, String date, boolean valid) {}
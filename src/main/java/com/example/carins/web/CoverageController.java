@@ -0,0 +1,37 @@
+package com.example.carins.web;
+
+import com.example.carins.coverage.DailyCoverageIndex;
+import com.example.carins.web.dto.CoverageSetDto;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/coverage")
+public class CoverageController {
+
+    private final DailyCoverageIndex coverage;
+
+    public CoverageController(DailyCoverageIndex coverage) {
+        this.coverage = coverage;
+    }
+
+    /**
+     * Ids of the cars with an active policy on {@code date}, fleet-wide or for one owner, from the daily bitmaps.
+     */
+    @GetMapping("/insured")
+    public CoverageSetDto insured(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                  @RequestParam(required = false) Long ownerId) {
+        return coverage.query(date, ownerId, true);
+    }
+
+    /**
+     * Ids of the cars without an active policy on {@code date}, fleet-wide or for one owner.
+     */
+    @GetMapping("/uninsured")
+    public CoverageSetDto uninsured(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                    @RequestParam(required = false) Long ownerId) {
+        return coverage.query(date, ownerId, false);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.carins.web;
+
+import com.example.carins.imports.CsvImportService;
+import com.example.carins.web.dto.CsvImportReportDto;
+import com.example.carins.web.dto.CsvImportRequestDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/imports")
+public class ImportController {
+
+    private final CsvImportService importService;
+    private final Path importDir;
+
+    public ImportController(CsvImportService importService,
+                            @Value("${carins.import.dir:import}") String importDir) {
+        this.importService = importService;
+        this.importDir = Path.of(importDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Loads owners, cars and policies from CSV files already placed in the import directory.
+     */
+    @PostMapping("/csv")
+    public CsvImportReportDto importCsv(@RequestBody CsvImportRequestDto request) throws IOException {
+        if (request.owners() == null && request.cars() == null && request.policies() == null) {
+            throw new IllegalArgumentException("At least one of owners, cars or policies is required");
+        }
+        return importService.importFiles(resolve(request.owners()), resolve(request.cars()), resolve(request.policies()));
+    }
+
+    private Path resolve(String name) {
+        if (name == null) {
+            return null;
+        }
+        Path file = importDir.resolve(name).normalize();
+        if (!file.startsWith(importDir)) {
+            throw new IllegalArgumentException("Import files must be inside the import directory");
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchElementException("Import file " + name + " not found!");
+        }
+        return file;
+    }
+}
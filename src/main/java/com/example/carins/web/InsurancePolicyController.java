@@ -1,33 +1,80 @@
 package com.example.carins.web;
 
-import com.example.carins.model.InsurancePolicy;
 import com.example.carins.service.InsurancePolicyService;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api")
 public class InsurancePolicyController {
 
     private final InsurancePolicyService insuranceService;
+    private final ObjectMapper objectMapper;
+    private final JsonResponseCache responses;
 
-    public InsurancePolicyController(InsurancePolicyService service) {
+    private static final int defaultPageSize = 100;
+    private static final int maxPageSize = 1_000;
+
+    public InsurancePolicyController(InsurancePolicyService service, ObjectMapper objectMapper,
+                                     JsonResponseCache responses) {
         this.insuranceService = service;
+        this.objectMapper = objectMapper;
+        this.responses = responses;
     }
 
     @GetMapping("/insurances")
-    public List<InsurancePolicyDto> getInsurances() {
-        return insuranceService.listInsurances().stream().map(this::toDto).toList();
+    public ResponseEntity<List<InsurancePolicyDto>> getInsurances(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) String provider,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "" + defaultPageSize) int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        checkRange(from, to);
+
+        List<InsurancePolicyDto> page = insuranceService.listInsurances(after, provider, from, to, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath("/api/insurances")
+                    .queryParam("after", page.get(page.size() - 1).id())
+                    .queryParam("limit", limit);
+            if (provider != null) next.queryParam("provider", provider);
+            if (from != null) next.queryParam("from", from);
+            if (to != null) next.queryParam("to", to);
+            response.header(HttpHeaders.LINK, "<" + next.encode().toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    @GetMapping(value = "/insurances/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamInsurances(
+            @RequestParam(required = false) String provider,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+
+        return NdjsonResponses.stream(objectMapper,
+                (Consumer<InsurancePolicyDto> row) -> insuranceService.forEachInsurance(provider, from, to, row));
     }
 
     @GetMapping("/insurances/{id}")
-    public ResponseEntity<InsurancePolicyDto> getInsurance(@PathVariable Long id) {
-        return ResponseEntity.ok(insuranceService.findById(id));
+    public ResponseEntity<byte[]> getInsurance(@PathVariable Long id) {
+        return responses.get(JsonResponseCache.Resource.POLICY, id, () -> insuranceService.findById(id));
     }
 
     @PostMapping("/insurances")
@@ -45,13 +92,9 @@ public class InsurancePolicyController {
             return ResponseEntity.ok(insuranceService.update(id, dto));
     }
 
-    private InsurancePolicyDto toDto(InsurancePolicy i) {
-        var c = i.getCar();
-        return new InsurancePolicyDto(
-                i.getId(),
-                c != null ? c.getId() : null,
-                i.getProvider(),
-                i.getStartDate(),
-                i.getEndDate());
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
     }
 }
@@ -0,0 +1,49 @@
+package com.example.carins.web;
+
+import com.example.carins.analytics.ClaimAmountAnalytics;
+import com.example.carins.jobs.ExpiryRunReport;
+import com.example.carins.jobs.PolicyExpiryScheduler;
+import com.example.carins.service.ClaimAggregateService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final PolicyExpiryScheduler expiryScheduler;
+    private final ClaimAggregateService claimAggregates;
+    private final ClaimAmountAnalytics claimAmounts;
+
+    public JobController(PolicyExpiryScheduler expiryScheduler, ClaimAggregateService claimAggregates,
+                         ClaimAmountAnalytics claimAmounts) {
+        this.expiryScheduler = expiryScheduler;
+        this.claimAggregates = claimAggregates;
+        this.claimAmounts = claimAmounts;
+    }
+
+    @GetMapping("/policy-expiry/last-run")
+    public ResponseEntity<ExpiryRunReport> lastExpiryRun() {
+        return ResponseEntity.ok(expiryScheduler.lastRun()
+                .orElseThrow(() -> new NoSuchElementException("Policy expiry job has not run yet!")));
+    }
+
+    /**
+     * Recomputes all claim aggregates from the claims, in parallel id-range partitions.
+     * Meant for repair after out-of-band data changes; 409 while another rebuild runs.
+     */
+    @PostMapping("/claim-aggregates/rebuild")
+    public ClaimAggregateService.RebuildReport rebuildClaimAggregates() {
+        return claimAggregates.rebuild();
+    }
+
+    /**
+     * Recomputes this node's claim amount percentiles in one pass over the claims.
+     */
+    @PostMapping("/claim-analytics/rebuild")
+    public ClaimAmountAnalytics.RebuildReport rebuildClaimAnalytics() {
+        return claimAmounts.rebuild();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.carins.web;
+
+import com.example.carins.service.CarWrittenEvent;
+import com.example.carins.service.OwnerWrittenEvent;
+import com.example.carins.service.PolicyWrittenEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Serialized JSON bodies of the GET-by-id endpoints, with their ETag, bounded by
+ * {@code carins.responses.cache.max-size} bytes and expired {@code carins.responses.cache.ttl} after
+ * they are loaded. A hit writes the cached bytes without opening a transaction or running Jackson,
+ * and an {@code If-None-Match} carrying the cached ETag is answered 304 by Spring before any body
+ * is written.
+ * <p>
+ * A miss publishes an incomplete future for its key and loads on the calling thread outside the
+ * map, so no map lock is held across the transaction and serialization; concurrent requests for the
+ * same key wait on that future. Entries are dropped after the write commits. An invalidation
+ * removes an in-flight future too, so a body read before the commit completes only the requests
+ * already waiting for it and is never cached. A car's body embeds its owner's name and email, so an
+ * owner write also drops the owner's cars. Claims are never updated, so their bodies are never
+ * invalidated and only expire.
+ * <p>
+ * Invalidation follows this node's writes only: after a write on another node, this node keeps
+ * serving the old body (and answering 304 to its ETag) until the entry expires, i.e. for up to the ttl.
+ */
+@Component
+public class JsonResponseCache {
+
+    public enum Resource { CAR, OWNER, POLICY, CLAIM }
+
+    private record Key(Resource resource, long id) {}
+
+    private record Body(byte[] json, String etag) {}
+
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Key, Body> bodies;
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${carins.responses.cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${carins.responses.cache.ttl:PT10M}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Body body) -> body.json().length + 64)
+                .expireAfterWrite(ttl)
+                .buildAsync();
+    }
+
+    /**
+     * The cached body of {@code resource} {@code id}, or the serialized result of {@code loader},
+     * which is cached unless it throws.
+     */
+    public ResponseEntity<byte[]> get(Resource resource, Long id, Supplier<?> loader) {
+        CompletableFuture<Body> loading = new CompletableFuture<>();
+        CompletableFuture<Body> cached = bodies.asMap().putIfAbsent(new Key(resource, id), loading);
+        Body body = cached == null ? load(loading, loader) : await(cached);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(body.etag())
+                .body(body.json());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarWritten(CarWrittenEvent event) {
+        bodies.synchronous().invalidate(new Key(Resource.CAR, event.carId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOwnerWritten(OwnerWrittenEvent event) {
+        bodies.synchronous().invalidate(new Key(Resource.OWNER, event.ownerId()));
+        event.carIds().forEach(carId -> bodies.synchronous().invalidate(new Key(Resource.CAR, carId)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyWritten(PolicyWrittenEvent event) {
+        bodies.synchronous().invalidate(new Key(Resource.POLICY, event.policy().id()));
+    }
+
+    // A failed future is removed by the cache, so the next request loads again.
+    private Body load(CompletableFuture<Body> loading, Supplier<?> loader) {
+        try {
+            Body body = serialize(loader.get());
+            loading.complete(body);
+            return body;
+        } catch (RuntimeException | Error ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // Waiting requests see the loader's own exception, so a missing id is still a 404.
+    private static Body await(CompletableFuture<Body> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private Body serialize(Object dto) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            return new Body(json, "\"0" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
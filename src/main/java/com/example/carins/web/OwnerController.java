@@ -1,26 +1,36 @@
 package com.example.carins.web;
 
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.service.ClaimAggregateService;
 import com.example.carins.service.OwnerService;
+import com.example.carins.web.dto.ClaimStatsDto;
 import com.example.carins.web.dto.OwnerDto;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/api")
 public class OwnerController {
 
     private final OwnerService service;
+    private final ClaimAggregateService claimAggregates;
+    private final JsonResponseCache responses;
 
-    public OwnerController(OwnerService service) {
+    public OwnerController(OwnerService service, ClaimAggregateService claimAggregates,
+                           JsonResponseCache responses) {
         this.service = service;
+        this.claimAggregates = claimAggregates;
+        this.responses = responses;
     }
 
     @GetMapping("/owners/{id}")
-    public ResponseEntity<OwnerDto> getOwner(@PathVariable Long id) {
-        return ResponseEntity.ok(service.findCarById(id));
+    public ResponseEntity<byte[]> getOwner(@PathVariable Long id) {
+        return responses.get(JsonResponseCache.Resource.OWNER, id, () -> service.findCarById(id));
     }
 
     @PostMapping("/owners")
@@ -38,5 +48,16 @@ public class OwnerController {
         return ResponseEntity.ok(service.update(id, dto));
     }
 
+    /**
+     * Claim totals over all cars the owner currently holds, by calendar month; see {@code /cars/{carId}/claim-stats}.
+     */
+    @GetMapping("/owners/{id}/claim-stats")
+    public ClaimStatsDto claimStats(@PathVariable Long id,
+                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        CarController.checkMonths(from, to);
+        return claimAggregates.stats(ClaimAggregate.Scope.OWNER, id, from, to);
+    }
+
 
 }
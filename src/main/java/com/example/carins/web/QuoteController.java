@@ -0,0 +1,50 @@
+package com.example.carins.web;
+
+import com.example.carins.pricing.PremiumQuoteService;
+import com.example.carins.web.dto.FleetQuoteDto;
+import com.example.carins.web.dto.PremiumQuoteDto;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+public class QuoteController {
+
+    private static final int maxBatchSize = 10_000;
+
+    private final PremiumQuoteService quotes;
+
+    public QuoteController(PremiumQuoteService quotes) {
+        this.quotes = quotes;
+    }
+
+    @GetMapping("/cars/{carId}/quote")
+    public PremiumQuoteDto quote(@PathVariable Long carId) {
+        return quotes.quote(carId);
+    }
+
+    @GetMapping("/owners/{ownerId}/quotes")
+    public FleetQuoteDto quoteFleet(@PathVariable Long ownerId) {
+        return quotes.quoteFleet(ownerId);
+    }
+
+    /**
+     * Quotes many cars by id; unknown ids are reported in {@code notFound}.
+     */
+    @PostMapping("/quotes:batch")
+    public FleetQuoteDto quoteBatch(@RequestBody List<Long> carIds) {
+        if (carIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + maxBatchSize + " items");
+        }
+        if (carIds.contains(null)) {
+            throw new IllegalArgumentException("Car ids must not be null");
+        }
+        return quotes.quoteAll(carIds);
+    }
+
+    @GetMapping("/quotes/cache")
+    public PremiumQuoteService.CacheStats cacheStats() {
+        return quotes.cacheStats();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.carins.web.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk claim import. Only the first rejected rows are listed; {@code rejected} counts all of them.
+ */
+public record ClaimImportReportDto(
+        long rows,
+        long created,
+        long rejected,
+        long millis,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+    /**
+     * A rejected row, by 1-based line number, with messages keyed by field like validation errors.
+     */
+    public record RowError(long line, Map<String, String> errors) {}
+}
@@ -0,0 +1,21 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Claim amount percentiles grouped by one dimension. Percentiles are estimates within
+ * {@code relativeAccuracy} of the true amount; counts, min and max are exact.
+ */
+public record ClaimPercentilesDto(
+        String by,
+        double relativeAccuracy,
+        Group all,
+        List<Group> groups
+) {
+    /**
+     * Figures of one group; amounts are null when it has no claims.
+     */
+    public record Group(String key, long count, BigDecimal min, BigDecimal p50, BigDecimal p95, BigDecimal p99,
+                        BigDecimal max) {}
+}
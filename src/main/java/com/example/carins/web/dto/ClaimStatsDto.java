@@ -0,0 +1,20 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Claim totals of a car or owner over a window of calendar months; {@code from}/{@code to} are null
+ * when that side of the window is open. {@code maxAmount} and {@code lastClaimDate} are null without claims.
+ */
+public record ClaimStatsDto(
+        String scope,
+        Long id,
+        YearMonth from,
+        YearMonth to,
+        long claimCount,
+        BigDecimal totalAmount,
+        BigDecimal maxAmount,
+        LocalDate lastClaimDate
+) {}
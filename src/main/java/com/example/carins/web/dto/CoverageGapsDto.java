@@ -0,0 +1,18 @@
+package com.example.carins.web.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The days in {@code [from, to]} on which a car had no active policy, as maximal inclusive intervals in date order.
+ */
+public record CoverageGapsDto(
+        Long carId,
+        String vin,
+        LocalDate from,
+        LocalDate to,
+        long uninsuredDays,
+        List<Gap> gaps
+) {
+    public record Gap(LocalDate start, LocalDate end, long days) {}
+}
@@ -0,0 +1,18 @@
+package com.example.carins.web.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The cars that were ({@code insured}) or were not insured on {@code date}, in id order; {@code ownerId} is null
+ * for the whole fleet. {@code precomputed} is false when the date lies outside the bitmap horizon and the
+ * answer came from the database.
+ */
+public record CoverageSetDto(
+        LocalDate date,
+        Long ownerId,
+        boolean insured,
+        boolean precomputed,
+        int count,
+        List<Long> carIds
+) {}
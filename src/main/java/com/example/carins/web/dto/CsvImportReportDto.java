@@ -0,0 +1,26 @@
+package com.example.carins.web.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a CSV import, one entry per file in load order (owners, cars, policies).
+ */
+public record CsvImportReportDto(List<FileReport> files, long millis) {
+
+    /**
+     * Per-file counts and throughput. Only the first rejected rows are listed; {@code rejected} counts all of them.
+     */
+    public record FileReport(
+            String kind,
+            String file,
+            long rows,
+            long created,
+            long rejected,
+            long millis,
+            long rowsPerSecond,
+            List<RowError> errors,
+            boolean errorsTruncated
+    ) {}
+
+    public record RowError(long line, String error) {}
+}
@@ -0,0 +1,6 @@
+package com.example.carins.web.dto;
+
+/**
+ * File names, relative to {@code carins.import.dir}; leave a kind out to skip it.
+ */
+public record CsvImportRequestDto(String owners, String cars, String policies) {}
@@ -0,0 +1,15 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Quotes for many cars in request order. Unknown car ids are listed in {@code notFound} instead.
+ */
+public record FleetQuoteDto(
+        List<PremiumQuoteDto> quotes,
+        List<Long> notFound,
+        BigDecimal totalPremium,
+        int cached,
+        long millis
+) {}
@@ -0,0 +1,7 @@
+package com.example.carins.web.dto;
+
+public record InsuranceValidityCheckDto(
+        Long carId,
+        String vin,
+        String date
+) {}
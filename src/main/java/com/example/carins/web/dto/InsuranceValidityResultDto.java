@@ -0,0 +1,24 @@
+package com.example.carins.web.dto;
+
+public record InsuranceValidityResultDto(
+        Long carId,
+        String vin,
+        String date,
+        Status status,
+        Boolean valid,
+        String error
+) {
+    public enum Status { OK, CAR_NOT_FOUND, INVALID_REQUEST }
+
+    public static InsuranceValidityResultDto ok(Long carId, String vin, String date, boolean valid) {
+        return new InsuranceValidityResultDto(carId, vin, date, Status.OK, valid, null);
+    }
+
+    public static InsuranceValidityResultDto carNotFound(Long carId, String vin, String date, String error) {
+        return new InsuranceValidityResultDto(carId, vin, date, Status.CAR_NOT_FOUND, null, error);
+    }
+
+    public static InsuranceValidityResultDto invalid(Long carId, String vin, String date, String error) {
+        return new InsuranceValidityResultDto(carId, vin, date, Status.INVALID_REQUEST, null, error);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Annual premium quote for one car, with the factors it was rated on.
+ */
+public record PremiumQuoteDto(
+        Long carId,
+        BigDecimal premium,
+        double riskScore,
+        double ageFactor,
+        double modelFactor,
+        double claimFactor,
+        double continuityFactor,
+        long claimsInWindow,
+        int uninsuredDays
+) {}
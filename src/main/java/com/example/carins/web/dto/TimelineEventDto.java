@@ -0,0 +1,44 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * One entry of a car's timeline. {@code id} is the claim id for claims and the policy id otherwise;
+ * {@code provider} is set for policy events, {@code description} and {@code amount} for claims.
+ */
+public record TimelineEventDto(
+        LocalDate date,
+        Type type,
+        Long id,
+        String provider,
+        String description,
+        BigDecimal amount
+) {
+    /** Declaration order breaks ties between events on the same day. */
+    public enum Type { POLICY_START, CLAIM, POLICY_END, POLICY_EXPIRED }
+
+    /** Timeline order: date, then type, then id. */
+    public static final Comparator<TimelineEventDto> ORDER = Comparator
+            .comparing(TimelineEventDto::date)
+            .thenComparing(TimelineEventDto::type)
+            .thenComparing(TimelineEventDto::id);
+
+    public static TimelineEventDto claim(ClaimDto c) {
+        return new TimelineEventDto(c.claimDate(), Type.CLAIM, c.id(), null, c.description(), c.amount());
+    }
+
+    public static TimelineEventDto policyStart(InsurancePolicyDto p) {
+        return new TimelineEventDto(p.startDate(), Type.POLICY_START, p.id(), p.provider(), null, null);
+    }
+
+    public static TimelineEventDto policyEnd(InsurancePolicyDto p) {
+        return new TimelineEventDto(p.endDate(), Type.POLICY_END, p.id(), p.provider(), null, null);
+    }
+
+    // A policy expires at the midnight after its last covered day.
+    public static TimelineEventDto policyExpired(InsurancePolicyDto p) {
+        return new TimelineEventDto(p.endDate().plusDays(1), Type.POLICY_EXPIRED, p.id(), p.provider(), null, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.carins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Request helpers shared by the API tests.
+final class ApiTestSupport {
+
+    private ApiTestSupport() {}
+
+    // Sends body as JSON, expects 201 Created and returns the new resource's id.
+    static long createdId(MockMvc mvc, ObjectMapper om, MockHttpServletRequestBuilder request, Object body) throws Exception {
+        return om.readTree(mvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(body)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.carins;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.model.Owner;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk insert throughput with and without JDBC batching. The benchmark only runs with
+ * {@code mvn test -Dcarins.benchmark=true -Dtest=BulkInsertBenchmarkTests}.
+ */
+@SpringBootTest
+class BulkInsertBenchmarkTests {
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBenchmarkTests.class);
+
+    private static final int ROWS = 20_000;
+    private static final int FLUSH_EVERY = 50;
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+
+    @Test
+    void sequence_ids_continue_after_imported_rows() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        Car car = tx.execute(status -> newCar("seq"));
+        Long firstClaim = tx.execute(status -> insertClaims(car, 120, null));
+
+        assertTrue(car.getId() > 2, "imported cars use ids 1 and 2");
+        assertNotNull(firstClaim);
+        Long count = tx.execute(status -> em.createQuery(
+                "select count(c) from Claim c where c.car.id = :carId", Long.class)
+                .setParameter("carId", car.getId()).getSingleResult());
+        assertEquals(120L, count);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "carins.benchmark", matches = "true")
+    void bulk_insert_throughput() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        Car car = tx.execute(status -> newCar("bench"));
+
+        // Warm-up, then one row per round trip vs. the configured batch size.
+        run(tx, car, 1, ROWS / 4);
+        run(tx, car, null, ROWS / 4);
+        long unbatched = run(tx, car, 1, ROWS);
+        long batched = run(tx, car, null, ROWS);
+
+        log.info("Bulk insert of {} claims: unbatched {} ms ({} rows/s), batched {} ms ({} rows/s)",
+                ROWS, unbatched, rowsPerSecond(unbatched), batched, rowsPerSecond(batched));
+    }
+
+    private long run(TransactionTemplate tx, Car car, Integer batchSize, int rows) {
+        long started = System.nanoTime();
+        tx.executeWithoutResult(status -> insertClaims(car, rows, batchSize));
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private Long insertClaims(Car car, int rows, Integer batchSize) {
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+        Car ref = em.getReference(Car.class, car.getId());
+        Long firstId = null;
+        for (int i = 0; i < rows; i++) {
+            Claim claim = new Claim(ref, LocalDate.of(2025, 1, 1).plusDays(i % 365), "Bulk claim " + i, BigDecimal.TEN);
+            em.persist(claim);
+            if (firstId == null) {
+                firstId = claim.getId();
+            }
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                em.flush();
+                em.clear();
+                ref = em.getReference(Car.class, car.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+        session.setJdbcBatchSize(null);
+        return firstId;
+    }
+
+    private Car newCar(String tag) {
+        Owner owner = new Owner("Bulk " + tag, "bulk." + tag + "@example.com");
+        em.persist(owner);
+        Car car = new Car(("BLK" + tag.toUpperCase() + "00000").substring(0, 8), "Dacia", "Logan", 2020, owner);
+        em.persist(car);
+        return car;
+    }
+
+    private static long rowsPerSecond(long millis) {
+        return ROWS * 1000L / Math.max(1, millis);
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.carins;
 
+import com.example.carins.jobs.PolicyExpiryScheduler;
+import com.example.carins.repo.CarRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -11,9 +16,14 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,6 +36,9 @@ class CarApiTests {
 
     @Autowired MockMvc mvc;
     @Autowired ObjectMapper om;
+    @Autowired PolicyExpiryScheduler expiryScheduler;
+    @Autowired CarRepository carRepository;
+    @Autowired EntityManagerFactory emf;
 
     private String asJson(Object o) throws Exception { return om.writeValueAsString(o); }
     private JsonNode parse(MvcResult r) throws Exception { return om.readTree(r.getResponse().getContentAsString()); }
@@ -182,9 +195,267 @@ class CarApiTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void readsAreServedFromTheSecondLevelCacheAndWritesInvalidateIt() throws Exception {
+        long ownerId = createOwner("Cache Owner", "cache.owner@example.com");
+        long carId = parse(mvc.perform(post(CARS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "CACHE001", "Opel", "Astra", 2018))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+
+        // GET /api/cars/{id} is answered from the response cache, so load through the repository.
+        long hitsBefore = carRegion().get("hits").asLong();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Astra", carRepository.findById(carId).orElseThrow().getModel());
+        }
+        assertTrue(carRegion().get("hits").asLong() >= hitsBefore + 3);
+
+        mvc.perform(put(CARS + "/" + carId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "CACHE001", "Opel", "Corsa", 2018))))
+                .andExpect(status().isOk());
+        mvc.perform(get(CARS + "/" + carId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.model").value("Corsa"));
+
+        JsonNode stats = parse(mvc.perform(get("/api/cache/stats")).andExpect(status().isOk()).andReturn());
+        assertTrue(stats.get("statisticsEnabled").asBoolean());
+        assertTrue(stats.get("queries").get("hits").asLong() > 0);
+    }
+
+    @Test
+    void cacheStatsReportDisabledStatisticsInsteadOfZeros() throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(false);
+        try {
+            JsonNode stats = parse(mvc.perform(get("/api/cache/stats")).andExpect(status().isOk()).andReturn());
+            assertFalse(stats.get("statisticsEnabled").asBoolean());
+            assertTrue(stats.get("queries").get("hits").isNull());
+            for (JsonNode region : stats.get("regions")) {
+                assertTrue(region.get("misses").isNull());
+                assertTrue(region.get("size").isNumber());
+            }
+        } finally {
+            statistics.setStatisticsEnabled(true);
+        }
+    }
+
+    @Test
+    void getByIdServesCachedBodiesWithEtagsUntilTheCarOrItsOwnerChanges() throws Exception {
+        long ownerId = createOwner("Etag Owner", "etag.owner@example.com");
+        long carId = parse(mvc.perform(post(CARS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "ETAGCAR1", "Seat", "Ibiza", 2017))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+
+        String etag = mvc.perform(get(CARS + "/" + carId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.ownerName").value("Etag Owner"))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get(CARS + "/" + carId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // The car body embeds the owner, so an owner update must drop it too.
+        mvc.perform(put(OWNERS + "/" + ownerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(Map.of("name", "Etag Renamed", "email", "etag.owner@example.com"))))
+                .andExpect(status().isOk());
+        String renamed = mvc.perform(get(CARS + "/" + carId).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ownerName").value("Etag Renamed"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertFalse(etag.equals(renamed));
+        mvc.perform(get(OWNERS + "/" + ownerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Etag Renamed"));
+
+        mvc.perform(put(CARS + "/" + carId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "ETAGCAR1", "Seat", "Leon", 2017))))
+                .andExpect(status().isOk());
+        mvc.perform(get(CARS + "/" + carId).header("If-None-Match", renamed))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.model").value("Leon"));
+    }
+
+    private JsonNode carRegion() throws Exception {
+        JsonNode stats = parse(mvc.perform(get("/api/cache/stats")).andExpect(status().isOk()).andReturn());
+        for (JsonNode region : stats.get("regions")) {
+            if (region.get("name").asText().equals("car")) {
+                return region;
+            }
+        }
+        throw new AssertionError("No car region in " + stats);
+    }
+
     @Test
     void getByIdNotFound() throws Exception {
         mvc.perform(get(CARS + "/20"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void listIsKeysetPaginated() throws Exception {
+        MvcResult first = mvc.perform(get(CARS).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("Link", containsString("after=")))
+                .andReturn();
+        long firstId = parse(first).get(0).get("id").asLong();
+
+        mvc.perform(get(CARS).param("after", String.valueOf(firstId)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(greaterThan((int) firstId)));
+
+        mvc.perform(get(CARS).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamWritesOneCarPerLine() throws Exception {
+        MvcResult async = mvc.perform(get(CARS + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertTrue(lines.length >= 2);
+        for (String line : lines) {
+            assertTrue(om.readTree(line).has("vin"));
+        }
+        assertEquals(1L, om.readTree(lines[0]).get("id").asLong());
+    }
+
+    @Test
+    void timelineMergesClaimsPoliciesAndExpiriesInOrder() throws Exception {
+        long ownerId = createOwner("Timeline Owner", "timeline.owner@example.com");
+        long carId = parse(mvc.perform(post(CARS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "TIMELINE", "Mazda", "3", 2020))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+
+        long first = createPolicy(carId, "Allianz", "2024-01-01", "2024-06-30");
+        long second = createPolicy(carId, "Groupama", "2024-07-01", "2025-06-30");
+        createClaim(carId, "2024-07-01", "Hail");
+        createClaim(carId, "2024-03-01", "Scratch");
+        // Both policies lie in the past; the expiry timer may already have logged them, recording is idempotent.
+        expiryScheduler.recordExpired(List.of(first, second));
+
+        String timeline = CARS + "/" + carId + "/timeline";
+        MvcResult page1 = mvc.perform(get(timeline).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("POLICY_START"))
+                .andExpect(jsonPath("$[0].id").value(first))
+                .andExpect(jsonPath("$[1].type").value("CLAIM"))
+                .andExpect(jsonPath("$[1].description").value("Scratch"))
+                .andExpect(jsonPath("$[2].type").value("POLICY_END"))
+                .andExpect(jsonPath("$[2].date").value("2024-06-30"))
+                .andExpect(header().string("Link", containsString("after=2024-06-30:POLICY_END:" + first)))
+                .andReturn();
+
+        // Same-day events: start, then claim, then the expiry of the previous policy.
+        mvc.perform(get(timeline).param("limit", "3").param("after", "2024-06-30:POLICY_END:" + first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("POLICY_START"))
+                .andExpect(jsonPath("$[0].id").value(second))
+                .andExpect(jsonPath("$[1].type").value("CLAIM"))
+                .andExpect(jsonPath("$[1].description").value("Hail"))
+                .andExpect(jsonPath("$[2].type").value("POLICY_EXPIRED"))
+                .andExpect(jsonPath("$[2].date").value("2024-07-01"));
+
+        mvc.perform(get(timeline).param("after", "2024-07-01:POLICY_EXPIRED:" + first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].type").value("POLICY_END"))
+                .andExpect(jsonPath("$[0].id").value(second))
+                .andExpect(jsonPath("$[1].type").value("POLICY_EXPIRED"))
+                .andExpect(jsonPath("$[1].date").value("2025-07-01"))
+                .andExpect(header().doesNotExist("Link"));
+
+        MvcResult async = mvc.perform(get(timeline + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(8, body.strip().split("\n").length);
+
+        mvc.perform(get(timeline).param("after", "yesterday"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(CARS + "/99999/timeline"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void coverageGapsPerCarAndFleetWide() throws Exception {
+        long ownerId = createOwner("Gap Owner", "gap.owner@example.com");
+        long carId = parse(mvc.perform(post(CARS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(carDto(ownerId, "GAPCAR01", "Fiat", "Panda", 2016))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+        createPolicy(carId, "Allianz", "2024-01-10", "2024-03-31");
+        createPolicy(carId, "Allianz", "2024-04-01", "2024-05-31");
+        createPolicy(carId, "Groupama", "2024-08-01", "2025-12-31");
+
+        mvc.perform(get(CARS + "/" + carId + "/coverage-gaps").param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vin").value("GAPCAR01"))
+                .andExpect(jsonPath("$.uninsuredDays").value(70))
+                .andExpect(jsonPath("$.gaps.length()").value(2))
+                .andExpect(jsonPath("$.gaps[0].start").value("2024-01-01"))
+                .andExpect(jsonPath("$.gaps[0].end").value("2024-01-09"))
+                .andExpect(jsonPath("$.gaps[1].start").value("2024-06-01"))
+                .andExpect(jsonPath("$.gaps[1].end").value("2024-07-31"))
+                .andExpect(jsonPath("$.gaps[1].days").value(61));
+        mvc.perform(get(CARS + "/" + carId + "/coverage-gaps").param("from", "2024-02-01").param("to", "2024-05-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uninsuredDays").value(0))
+                .andExpect(jsonPath("$.gaps.length()").value(0));
+
+        // Sample car 1 is covered all of 2024, sample car 2 only from March 2025.
+        MvcResult async = mvc.perform(get(CARS + "/coverage-gaps/stream").param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<Long, JsonNode> uninsured = new HashMap<>();
+        for (String line : body.strip().split("\n")) {
+            JsonNode row = om.readTree(line);
+            uninsured.put(row.get("carId").asLong(), row);
+        }
+        assertFalse(uninsured.containsKey(1L));
+        assertEquals(366, uninsured.get(2L).get("uninsuredDays").asLong());
+        assertEquals(70, uninsured.get(carId).get("uninsuredDays").asLong());
+
+        mvc.perform(get(CARS + "/" + carId + "/coverage-gaps").param("from", "2024-12-31").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(CARS + "/99999/coverage-gaps").param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isNotFound());
+    }
+
+    private long createPolicy(long carId, String provider, String start, String end) throws Exception {
+        return parse(mvc.perform(post("/api/insurances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(Map.of("carId", carId, "provider", provider, "startDate", start, "endDate", end))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+    }
+
+    private void createClaim(long carId, String date, String description) throws Exception {
+        mvc.perform(post(CARS + "/" + carId + "/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(Map.of("carId", carId, "claimDate", date, "description", description, "amount", 250))))
+                .andExpect(status().isCreated());
+    }
 }
@@ -1,12 +1,20 @@
 package com.example.carins;
 
 import com.example.carins.service.CarService;
+import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import com.example.carins.web.dto.OwnerDto;
+import com.example.carins.service.OwnerService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.http.MediaType;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 
@@ -25,6 +33,12 @@ class CarInsuranceApplicationTests {
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    InsurancePolicyService policyService;
+
+    @Autowired
+    OwnerService ownerService;
+
     @Test
     void insuranceValidityBasic() {
         assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2024-06-01")));
@@ -58,4 +72,52 @@ class CarInsuranceApplicationTests {
                 .andExpect(status().isOk())
                 .andExpect(content().string(containsString("\"carId\":1")));
     }
+
+    @Test
+    void insuranceValidityFollowsPolicyWrites() {
+        OwnerDto owner = ownerService.create(new OwnerDto(null, "Index Owner", "index.owner@example.com"));
+        CarDto car = service.create(new CarDto(null, "VINIDX01", "Dacia", "Duster", 2020, owner.id(), null, null));
+        LocalDate day = LocalDate.parse("2025-05-15");
+
+        assertFalse(service.isInsuranceValid(car.id(), day));
+
+        InsurancePolicyDto policy = policyService.create(new InsurancePolicyDto(null, car.id(), "Allianz",
+                LocalDate.parse("2025-05-01"), LocalDate.parse("2025-05-31")));
+        assertTrue(service.isInsuranceValid(car.id(), day));
+        assertTrue(service.isInsuranceValid(car.id(), LocalDate.parse("2025-05-31")));
+        assertFalse(service.isInsuranceValid(car.id(), LocalDate.parse("2025-06-01")));
+
+        policyService.update(policy.id(), new InsurancePolicyDto(null, car.id(), "Allianz",
+                LocalDate.parse("2025-06-01"), LocalDate.parse("2025-06-30")));
+        assertFalse(service.isInsuranceValid(car.id(), day));
+        assertTrue(service.isInsuranceValid(car.id(), LocalDate.parse("2025-06-15")));
+    }
+
+    @Test
+    void insuranceValidityBatchReportsPerItem() throws Exception {
+        String body = """
+                [
+                  {"carId": 1, "date": "2024-06-01"},
+                  {"vin": "vin67890", "date": "2025-02-01"},
+                  {"vin": "VIN67890", "date": "2025-06-01"},
+                  {"carId": 999, "date": "2025-06-01"},
+                  {"vin": "NOSUCHVN", "date": "2025-06-01"},
+                  {"carId": 1, "date": "01-06-2025"},
+                  {"date": "2025-06-01"}
+                ]
+                """;
+
+        mvc.perform(post("/api/cars/insurance-valid:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(7))
+                .andExpect(jsonPath("$[0].valid").value(true))
+                .andExpect(jsonPath("$[1].carId").value(2))
+                .andExpect(jsonPath("$[1].valid").value(false))
+                .andExpect(jsonPath("$[2].valid").value(true))
+                .andExpect(jsonPath("$[3].status").value("CAR_NOT_FOUND"))
+                .andExpect(jsonPath("$[4].status").value("CAR_NOT_FOUND"))
+                .andExpect(jsonPath("$[5].status").value("INVALID_REQUEST"))
+                .andExpect(jsonPath("$[5].error").value(containsString("Invalid date format")))
+                .andExpect(jsonPath("$[6].status").value("INVALID_REQUEST"));
+    }
 }
@@ -0,0 +1,127 @@
+package com.example.carins;
+
+import com.example.carins.analytics.QuantileSketch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static com.example.carins.ApiTestSupport.createdId;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ClaimAnalyticsTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+
+    @Test
+    void sketch_quantiles_stay_within_relative_error_and_merge_exactly() {
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        double[] values = new double[100_000];
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            // Long-tailed, like claim amounts.
+            values[i] = Math.round(Math.exp(random.nextGaussian() * 1.5 + 7) * 100) / 100.0;
+            whole.add(values[i]);
+            (i % 2 == 0 ? low : high).add(values[i]);
+        }
+        low.merge(high);
+        Arrays.sort(values);
+
+        for (double q : new double[] {0.5, 0.95, 0.99}) {
+            double exact = values[(int) (q * (values.length - 1))];
+            assertEquals(exact, whole.quantile(q), exact * QuantileSketch.DEFAULT_RELATIVE_ACCURACY, "q=" + q);
+            assertEquals(whole.quantile(q), low.quantile(q), "merged sketch differs at q=" + q);
+        }
+        assertEquals(values.length, low.count());
+        assertEquals(values[0], low.min());
+        assertEquals(values[values.length - 1], low.max());
+
+        QuantileSketch empty = new QuantileSketch();
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+        empty.add(0);
+        assertEquals(0, empty.quantile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> empty.add(-1));
+    }
+
+    @Test
+    void percentiles_by_provider_make_and_model_follow_claims_and_rebuild() throws Exception {
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Sketch Owner", "email", "sketch.owner@example.com"));
+        long insured = createdId(mvc, om, post("/api/cars"), Map.of("vin", "SKETCH01", "make", "Sketchy", "model", "One",
+                "year", 2020, "ownerId", ownerId));
+        long uninsured = createdId(mvc, om, post("/api/cars"), Map.of("vin", "SKETCH02", "make", "Sketchy", "model", "Two",
+                "year", 2021, "ownerId", ownerId));
+        createdId(mvc, om, post("/api/insurances"), Map.of("carId", insured, "provider", "SketchIns",
+                "startDate", "2024-01-01", "endDate", "2024-12-31"));
+
+        for (int amount = 1; amount <= 100; amount++) {
+            claim(insured, "2024-05-01", BigDecimal.valueOf(amount * 10L));
+        }
+        claim(uninsured, "2024-05-01", new BigDecimal("5000"));
+
+        JsonNode byProvider = report("provider");
+        JsonNode sketchIns = group(byProvider, "SketchIns");
+        assertEquals(100, sketchIns.get("count").asLong());
+        assertEquals(10.0, sketchIns.get("min").asDouble());
+        assertEquals(1000.0, sketchIns.get("max").asDouble());
+        assertEquals(500.0, sketchIns.get("p50").asDouble(), 5.0);
+        assertEquals(950.0, sketchIns.get("p95").asDouble(), 9.5);
+        assertTrue(group(byProvider, "(uninsured)").get("count").asLong() >= 1);
+
+        JsonNode make = group(report("make"), "Sketchy");
+        assertEquals(101, make.get("count").asLong());
+        assertEquals(5000.0, make.get("max").asDouble());
+        assertEquals(1, group(report("model"), "Sketchy/Two").get("count").asLong());
+
+        // A policy added later moves the old claim to its insurer once the sketches are rebuilt.
+        createdId(mvc, om, post("/api/insurances"), Map.of("carId", uninsured, "provider", "LateIns",
+                "startDate", "2024-01-01", "endDate", "2024-12-31"));
+        assertNull(group(report("provider"), "LateIns"));
+        mvc.perform(post("/api/jobs/claim-analytics/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claims").isNumber());
+        JsonNode rebuilt = report("provider");
+        assertEquals(1, group(rebuilt, "LateIns").get("count").asLong());
+        assertEquals(sketchIns, group(rebuilt, "SketchIns"));
+
+        mvc.perform(get("/api/analytics/claim-amounts").param("by", "colour"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode report(String by) throws Exception {
+        return om.readTree(mvc.perform(get("/api/analytics/claim-amounts").param("by", by))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.by").value(by.toUpperCase()))
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static JsonNode group(JsonNode report, String key) {
+        for (JsonNode g : report.get("groups")) {
+            if (g.get("key").asText().equals(key)) {
+                return g;
+            }
+        }
+        return null;
+    }
+
+    private void claim(long carId, String date, BigDecimal amount) throws Exception {
+        createdId(mvc, om, post("/api/cars/" + carId + "/claims"), Map.of("carId", carId, "claimDate", date,
+                "description", "Sketch claim", "amount", amount));
+    }
+}
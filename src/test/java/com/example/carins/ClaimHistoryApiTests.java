@@ -7,14 +7,30 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -55,4 +71,219 @@ class ClaimHistoryApiTests {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray());
     }
+
+    @Test
+    void bulkImportStoresValidRowsAndReportsTheRest() throws Exception {
+        String ndjson = String.join("\n",
+                "{\"carId\":2,\"claimDate\":\"2025-02-01\",\"description\":\"Bulk windshield\",\"amount\":300}",
+                "{\"carId\":2,\"claimDate\":",
+                "{\"carId\":2,\"claimDate\":\"2025-02-02\",\"description\":\"Bulk mirror\",\"amount\":-5}",
+                "{\"carId\":999,\"claimDate\":\"2025-02-03\",\"description\":\"Bulk ghost\",\"amount\":10}",
+                "",
+                "{\"carId\":2,\"claimDate\":\"2025-02-04\",\"description\":\"Bulk door\",\"amount\":450.25}");
+
+        mvc.perform(post("/api/claims:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(5))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].errors.row").exists())
+                .andExpect(jsonPath("$.errors[1].line").value(3))
+                .andExpect(jsonPath("$.errors[1].errors.amount").value("Amount must not be negative!"))
+                .andExpect(jsonPath("$.errors[2].line").value(4))
+                .andExpect(jsonPath("$.errors[2].errors.carId").value("Car with id 999 not found!"));
+
+        mvc.perform(get("/api/cars/2/history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.description == 'Bulk windshield')]").exists())
+                .andExpect(jsonPath("$[?(@.description == 'Bulk door')]").exists())
+                .andExpect(jsonPath("$[?(@.description == 'Bulk ghost')]").doesNotExist());
+    }
+
+    @Test
+    void historyIsPagedByDateThenIdAndFiltered() throws Exception {
+        long ownerId = om.readTree(mvc.perform(post("/api/owners")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("name", "Paged History", "email", "paged.history@example.com"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        long carId = om.readTree(mvc.perform(post("/api/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("vin", "HISTPAGE", "make", "Kia", "model", "Ceed",
+                                "year", 2019, "ownerId", ownerId))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        // Inserted out of order; two claims share a date.
+        for (String date : new String[] {"2024-05-01", "2024-01-10", "2024-03-01", "2024-03-01", "2024-07-20"}) {
+            mvc.perform(post("/api/cars/" + carId + "/claims")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(om.writeValueAsString(Map.of("carId", carId, "claimDate", date,
+                            "description", "Claim on " + date, "amount", 100))))
+                    .andExpect(status().isCreated());
+        }
+
+        String history = "/api/cars/" + carId + "/history";
+        MvcResult first = mvc.perform(get(history).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].claimDate").value("2024-01-10"))
+                .andExpect(jsonPath("$[1].claimDate").value("2024-03-01"))
+                .andExpect(header().string("Link", containsString("afterDate=2024-03-01")))
+                .andReturn();
+        long lastId = om.readTree(first.getResponse().getContentAsString()).get(1).get("id").asLong();
+
+        mvc.perform(get(history).param("limit", "2").param("afterDate", "2024-03-01").param("afterId", String.valueOf(lastId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].claimDate").value("2024-03-01"))
+                .andExpect(jsonPath("$[0].id").value(not(lastId)))
+                .andExpect(jsonPath("$[1].claimDate").value("2024-05-01"));
+
+        mvc.perform(get(history).param("from", "2024-02-01").param("to", "2024-06-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(header().doesNotExist("Link"));
+
+        mvc.perform(get(history).param("afterDate", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult async = mvc.perform(get(history + "/stream").param("from", "2024-05-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("2024-05-01"));
+    }
+
+    @Test
+    void historyStreamWhenCarMissing() throws Exception {
+        mvc.perform(get("/api/cars/999/history/stream"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void claimStatsFollowClaimsOwnershipAndRebuild() throws Exception {
+        long firstOwner = createOwner("Stats First", "stats.first@example.com");
+        long secondOwner = createOwner("Stats Second", "stats.second@example.com");
+        long carId = om.readTree(mvc.perform(post("/api/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("vin", "STATS001", "make", "Seat", "model", "Leon",
+                                "year", 2021, "ownerId", firstOwner))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        postClaim(carId, "2024-01-15", "100.00");
+        postClaim(carId, "2024-01-20", "250.50");
+        postClaim(carId, "2024-03-02", "75.25");
+        mvc.perform(post("/api/claims:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"carId\":" + carId + ",\"claimDate\":\"2024-06-30\",\"description\":\"Bulk stats\",\"amount\":400}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        String carStats = "/api/cars/" + carId + "/claim-stats";
+        mvc.perform(get(carStats))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(4))
+                .andExpect(jsonPath("$.totalAmount").value(825.75))
+                .andExpect(jsonPath("$.maxAmount").value(400.0))
+                .andExpect(jsonPath("$.lastClaimDate").value("2024-06-30"));
+        mvc.perform(get(carStats).param("from", "2024-01").param("to", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.from").value("2024-01"))
+                .andExpect(jsonPath("$.claimCount").value(3))
+                .andExpect(jsonPath("$.maxAmount").value(250.5))
+                .andExpect(jsonPath("$.lastClaimDate").value("2024-03-02"));
+        mvc.perform(get("/api/owners/" + firstOwner + "/claim-stats").param("from", "2024-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(2))
+                .andExpect(jsonPath("$.totalAmount").value(475.25));
+
+        // Selling the car moves its totals to the new owner.
+        mvc.perform(put("/api/cars/" + carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(Map.of("vin", "STATS001", "make", "Seat", "model", "Leon",
+                        "year", 2021, "ownerId", secondOwner))))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/owners/" + firstOwner + "/claim-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(0))
+                .andExpect(jsonPath("$.maxAmount").doesNotExist());
+        mvc.perform(get("/api/owners/" + secondOwner + "/claim-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(4));
+
+        String before = mvc.perform(get(carStats)).andReturn().getResponse().getContentAsString();
+        mvc.perform(post("/api/jobs/claim-aggregates/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.partitions").value(4));
+        assertEquals(before, mvc.perform(get(carStats)).andReturn().getResponse().getContentAsString());
+        mvc.perform(get("/api/owners/" + secondOwner + "/claim-stats"))
+                .andExpect(jsonPath("$.claimCount").value(4))
+                .andExpect(jsonPath("$.totalAmount").value(825.75));
+
+        mvc.perform(get(carStats).param("from", "2024-05").param("to", "2024-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/cars/999/claim-stats"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void concurrentFirstClaimsOfAMonthAreAllCounted() throws Exception {
+        long ownerId = createOwner("Stats Race", "stats.race@example.com");
+        long carId = om.readTree(mvc.perform(post("/api/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("vin", "STATS002", "make", "Seat", "model", "Ibiza",
+                                "year", 2022, "ownerId", ownerId))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        int claims = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> posts = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(claims)) {
+            for (int i = 0; i < claims; i++) {
+                String date = "2025-02-" + (10 + i);
+                posts.add(pool.submit(() -> {
+                    start.await();
+                    postClaim(carId, date, "10.00");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> post : posts) {
+                post.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        mvc.perform(get("/api/cars/" + carId + "/claim-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(claims))
+                .andExpect(jsonPath("$.totalAmount").value(80.0));
+        mvc.perform(get("/api/owners/" + ownerId + "/claim-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(claims));
+    }
+
+    private long createOwner(String name, String email) throws Exception {
+        return om.readTree(mvc.perform(post("/api/owners")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("name", name, "email", email))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private void postClaim(long carId, String date, String amount) throws Exception {
+        mvc.perform(post("/api/cars/" + carId + "/claims")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(Map.of("carId", carId, "claimDate", date,
+                        "description", "Claim on " + date, "amount", new BigDecimal(amount)))))
+                .andExpect(status().isCreated());
+    }
 }
@@ -0,0 +1,137 @@
+package com.example.carins;
+
+import com.example.carins.imports.CsvImportService;
+import com.example.carins.imports.CsvRecordReader;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.service.CarService;
+import com.example.carins.web.dto.CsvImportReportDto;
+import com.example.carins.web.dto.CsvImportReportDto.FileReport;
+import com.example.carins.web.dto.CsvImportReportDto.RowError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CsvImportTests {
+
+    @Autowired CsvImportService importService;
+    @Autowired CarService carService;
+    @Autowired CarRepository carRepository;
+
+    @TempDir Path dir;
+
+    @Test
+    void reader_handles_quotes_line_breaks_and_window_boundaries() throws Exception {
+        Path file = write("quoted.csv",
+                "name,email\r\n" +
+                "\"Pop, Ana\",ana@example.com\r\n" +
+                "\n" +
+                "\"Say \"\"hi\"\"\",\"multi\nline\"\n" +
+                "2024-02-29,  42 ,\n" +
+                "last,row");
+
+        // A tiny window forces records to be re-mapped across window boundaries.
+        try (CsvRecordReader csv = new CsvRecordReader(file, 32)) {
+            assertTrue(csv.next());
+            assertEquals("email", csv.string(1));
+
+            assertTrue(csv.next());
+            assertEquals(2, csv.lineNumber());
+            assertEquals("Pop, Ana", csv.string(0));
+            assertEquals("ana@example.com", csv.string(1));
+
+            assertTrue(csv.next());
+            assertEquals(4, csv.lineNumber());
+            assertEquals("Say \"hi\"", csv.string(0));
+            assertEquals("multi\nline", csv.string(1));
+
+            assertTrue(csv.next());
+            assertEquals(6, csv.lineNumber());
+            assertEquals(3, csv.fieldCount());
+            assertEquals(LocalDate.of(2024, 2, 29), csv.parseDate(0));
+            assertEquals(42, csv.parseInt(1));
+            assertNull(csv.trimmedOrNull(2));
+
+            assertTrue(csv.next());
+            assertEquals("row", csv.string(1));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void imports_owners_cars_and_policies_and_reports_rejects() throws Exception {
+        Path owners = write("owners.csv",
+                "name,email\n" +
+                "Csv One,csv.one@example.com\n" +
+                "Csv Two,CSV.Two@Example.com\n" +
+                "Csv Dup,csv.one@example.com\n" +
+                "Csv Bad,not-an-email\n");
+        Path cars = write("cars.csv",
+                "vin,make,model,year_of_manufacture,owner_email\n" +
+                "csv00001,Dacia,Duster,2019,csv.one@example.com\n" +
+                "CSV00002,Skoda,Octavia,2020,csv.two@example.com\n" +
+                "CSV00003,Ford,Focus,2017,ana.pop@example.com\n" +
+                "CSV00004,Opel,Astra,20x7,csv.one@example.com\n" +
+                "CSV00005,Opel,Corsa,2015,nobody@example.com\n" +
+                "VIN12345,Dacia,Logan,2018,csv.one@example.com\n");
+        Path policies = write("policies.csv",
+                "vin,provider,start_date,end_date\n" +
+                "CSV00001,Allianz,2025-01-01,2025-12-31\n" +
+                "CSV00002,Groupama,2025-06-01,2025-05-01\n" +
+                "CSV99999,Allianz,2025-01-01,2025-12-31\n" +
+                "VIN12345,Omniasig,2030-01-01,2030-12-31\n" +
+                "VIN12345,Omniasig,2030-06-01,2030-06-30\n" +
+                "VIN12345,Groupama,2025-06-01,2025-06-30\n");
+
+        CsvImportReportDto report = importService.importFiles(owners, cars, policies);
+
+        FileReport ownerReport = report.files().get(0);
+        assertEquals(4, ownerReport.rows());
+        assertEquals(2, ownerReport.created());
+        assertEquals(List.of(4L, 5L), lines(ownerReport.errors()));
+
+        FileReport carReport = report.files().get(1);
+        assertEquals(6, carReport.rows());
+        assertEquals(3, carReport.created());
+        assertEquals(List.of(5L, 6L, 7L), lines(carReport.errors()));
+        assertTrue(carReport.errors().get(1).error().contains("nobody@example.com"));
+        assertTrue(carReport.errors().get(2).error().contains("already exists"));
+        assertEquals("Ford", carRepository.findByVin("CSV00003").orElseThrow().getMake());
+
+        FileReport policyReport = report.files().get(2);
+        assertEquals(6, policyReport.rows());
+        assertEquals(2, policyReport.created());
+        assertEquals(List.of(3L, 4L, 6L, 7L), lines(policyReport.errors()));
+        // Overlaps are rejected against earlier rows of the file and against stored policies.
+        assertTrue(policyReport.errors().get(2).error().contains("line 5"));
+        assertTrue(policyReport.errors().get(3).error().contains("overlaps policy 2"));
+
+        // Imported policies are visible to the validity index, including one on a car that was already stored.
+        Long carId = carRepository.findByVin("CSV00001").orElseThrow().getId();
+        assertTrue(carService.isInsuranceValid(carId, LocalDate.of(2025, 7, 1)));
+        assertTrue(carService.isInsuranceValid(1L, LocalDate.of(2030, 7, 1)));
+    }
+
+    @Test
+    void file_without_the_expected_header_is_rejected() throws Exception {
+        Path owners = write("headerless.csv", "Csv Three,csv.three@example.com\n");
+        assertThrows(IllegalArgumentException.class, () -> importService.importFiles(owners, null, null));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static List<Long> lines(List<RowError> errors) {
+        return errors.stream().map(RowError::line).toList();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.carins;
+
+import com.example.carins.coverage.CompressedBitmap;
+import com.example.carins.coverage.DailyCoverageIndex;
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.CoverageChangeFeed;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.example.carins.ApiTestSupport.createdId;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Own context: a short horizon, so dates outside it are easy to reach.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"carins.coverage.past-days=30", "carins.coverage.future-days=30"})
+class DailyCoverageTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+    @Autowired DailyCoverageIndex coverage;
+    @Autowired CoverageChangeFeed coverageChanges;
+    @Autowired CarRepository carRepository;
+    @Autowired OwnerRepository ownerRepository;
+    @Autowired InsurancePolicyRepository policyRepository;
+    @Autowired PlatformTransactionManager txManager;
+
+    @Test
+    void bitmap_matches_a_plain_bit_set_across_sparse_and_dense_chunks() {
+        Random random = new Random(7);
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        for (int i = 0; i < 200_000; i++) {
+            // Chunk 0 turns dense (bit set), chunk 1 stays sparse (array), chunk 3 crosses over and back.
+            int value = switch (random.nextInt(3)) {
+                case 0 -> random.nextInt(20_000);
+                case 1 -> 65_536 + random.nextInt(65_536);
+                default -> 3 * 65_536 + random.nextInt(9_000);
+            };
+            boolean add = i < 150_000 || random.nextBoolean();
+            CompressedBitmap target = random.nextBoolean() ? a : b;
+            BitSet expected = target == a ? expectedA : expectedB;
+            if (add) {
+                assertEquals(!expected.get(value), target.add(value));
+                expected.set(value);
+            } else {
+                assertEquals(expected.get(value), target.remove(value));
+                expected.clear(value);
+            }
+        }
+        for (int i = 3 * 65_536; i < 3 * 65_536 + 9_000; i += 2) {
+            a.remove(i);
+            expectedA.clear(i);
+        }
+
+        assertEquals(expectedA, toBitSet(a));
+        assertEquals(expectedA.cardinality(), a.cardinality());
+        assertEquals(expectedB, toBitSet(b));
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        assertEquals(and, toBitSet(a.and(b)));
+        BitSet andNot = (BitSet) expectedA.clone();
+        andNot.andNot(expectedB);
+        assertEquals(andNot, toBitSet(a.andNot(b)));
+        assertEquals(expectedA, toBitSet(a.copy()));
+        assertTrue(a.contains(expectedA.nextSetBit(0)));
+        assertFalse(a.contains(-1));
+        assertThrows(IllegalArgumentException.class, () -> a.add(-1));
+    }
+
+    @Test
+    void insured_and_uninsured_sets_follow_policy_writes_and_the_horizon() throws Exception {
+        LocalDate today = LocalDate.now();
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Bitmap Owner", "email", "bitmap.owner@example.com"));
+        long covered = car(ownerId, "BITMAP01");
+        long bare = car(ownerId, "BITMAP02");
+        long later = car(ownerId, "BITMAP03");
+        policy(post("/api/insurances"), covered, today.minusDays(10), today.plusDays(10));
+        long laterPolicy = policy(post("/api/insurances"), later, today.plusDays(5), today.plusDays(20));
+
+        JsonNode insuredToday = query("insured", today, ownerId);
+        assertTrue(insuredToday.get("precomputed").asBoolean());
+        assertEquals(List.of(covered), ids(insuredToday));
+        assertEquals(List.of(bare, later), ids(query("uninsured", today, ownerId)));
+        assertEquals(List.of(covered, later), ids(query("insured", today.plusDays(6), ownerId)));
+
+        // An update may shrink or move a policy; the car is reloaded.
+        policy(put("/api/insurances/" + laterPolicy), later, today.plusDays(15), today.plusDays(20));
+        assertEquals(List.of(covered), ids(query("insured", today.plusDays(6), ownerId)));
+        assertEquals(List.of(later), ids(query("insured", today.plusDays(15), ownerId)));
+
+        // Fleet-wide sets partition all cars.
+        JsonNode fleetInsured = query("insured", today, null);
+        JsonNode fleetUninsured = query("uninsured", today, null);
+        assertTrue(ids(fleetInsured).contains(covered));
+        assertTrue(ids(fleetUninsured).contains(bare));
+        assertEquals(fleetInsured.get("count").asInt(), ids(fleetInsured).size());
+
+        // Outside the horizon the database answers, with the same semantics.
+        JsonNode past = query("uninsured", today.minusDays(60), ownerId);
+        assertFalse(past.get("precomputed").asBoolean());
+        assertEquals(List.of(covered, bare, later), ids(past));
+
+        coverage.slide();
+        assertEquals(List.of(later), ids(query("insured", today.plusDays(15), ownerId)));
+
+        mvc.perform(get("/api/coverage/insured").param("date", today.toString()).param("ownerId", "999999"))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/api/coverage/insured"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void writes_on_another_node_are_picked_up_by_the_next_poll() throws Exception {
+        LocalDate today = LocalDate.now();
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Remote Owner", "email", "remote.owner@example.com"));
+
+        // Another node's writes: the rows and their change record, but none of this node's after-commit hooks.
+        long carId = new TransactionTemplate(txManager).execute(status -> {
+            Car car = carRepository.save(new Car("REMOTE01", "Bitmap", "B2", 2021, ownerRepository.getReferenceById(ownerId)));
+            policyRepository.save(new InsurancePolicy(car, "Remote", today.minusDays(3), today.plusDays(3)));
+            coverageChanges.record(car.getId());
+            return car.getId();
+        });
+        assertEquals(List.of(), ids(query("insured", today, ownerId)));
+
+        coverageChanges.poll();
+        assertEquals(List.of(carId), ids(query("insured", today, ownerId)));
+        assertTrue(ids(query("insured", today, null)).contains(carId));
+        assertTrue(ids(query("uninsured", today.plusDays(4), null)).contains(carId));
+    }
+
+    private JsonNode query(String kind, LocalDate date, Long ownerId) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/coverage/" + kind).param("date", date.toString());
+        if (ownerId != null) {
+            request.param("ownerId", ownerId.toString());
+        }
+        return om.readTree(mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<Long> ids(JsonNode set) {
+        List<Long> ids = new ArrayList<>();
+        set.get("carIds").forEach(id -> ids.add(id.asLong()));
+        return ids;
+    }
+
+    private static BitSet toBitSet(CompressedBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.forEach(bits::set);
+        return bits;
+    }
+
+    private long car(long ownerId, String vin) throws Exception {
+        return createdId(mvc, om, post("/api/cars"), Map.of("vin", vin, "make", "Bitmap", "model", "B1", "year", 2020, "ownerId", ownerId));
+    }
+
+    private long policy(MockHttpServletRequestBuilder request, long carId, LocalDate start, LocalDate end) throws Exception {
+        return om.readTree(mvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("carId", carId, "provider", "BitmapIns",
+                                "startDate", start.toString(), "endDate", end.toString()))))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.carins;
 
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.service.CoverageChangeFeed;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -8,12 +12,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -22,9 +32,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class InsuranceApiTests {
 
     private static final String BASE = "/api/insurances";
+    private static final AtomicInteger CAR_SEQ = new AtomicInteger();
 
     @Autowired MockMvc mvc;
     @Autowired ObjectMapper om;
+    @Autowired CarRepository carRepository;
+    @Autowired InsurancePolicyRepository policyRepository;
+    @Autowired CoverageChangeFeed coverageChanges;
+    @Autowired PlatformTransactionManager txManager;
 
     private String json(Map<String,Object> m) throws Exception {
         return om.writeValueAsString(m);
@@ -41,13 +56,29 @@ class InsuranceApiTests {
         return m;
     }
 
+    // Sample car 1 is insured from 2025 on, so writes that must succeed get an uninsured car of their own.
+    private long createCar() throws Exception {
+        Map<String,Object> m = new HashMap<String,Object>();
+        m.put("vin", String.format("INSAPI%02d", CAR_SEQ.incrementAndGet()));
+        m.put("make", "Skoda");
+        m.put("model", "Octavia");
+        m.put("year", 2019);
+        m.put("ownerId", 1L);
+
+        MvcResult r = mvc.perform(post("/api/cars").contentType(MediaType.APPLICATION_JSON).content(json(m)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return om.readTree(r.getResponse().getContentAsString()).get("id").asLong();
+    }
+
     // POST CASES
     @Test void postOk() throws Exception {
+        long carId = createCar();
         mvc.perform(post(BASE).contentType(MediaType.APPLICATION_JSON)
-                .content(json(dto(1L, "Allianz", "2025-01-01", "2025-12-31"))))
+                .content(json(dto(carId, "Allianz", "2025-01-01", "2025-12-31"))))
                 .andExpect(status().is2xxSuccessful())
                 .andExpect(jsonPath("$.id").exists())
-                .andExpect(jsonPath("$.carId").value(1))
+                .andExpect(jsonPath("$.carId").value(carId))
                 .andExpect(jsonPath("$.provider").value("Allianz"));
     }
 
@@ -91,8 +122,9 @@ class InsuranceApiTests {
     }
 
     @Test void putOk() throws Exception {
-        long id = createPolicy(1L);
-        Map<String,Object> m = dto(1L, "Groupama", "2025-01-01", "2025-11-30");
+        long carId = createCar();
+        long id = createPolicy(carId);
+        Map<String,Object> m = dto(carId, "Groupama", "2025-01-01", "2025-11-30");
 
         mvc.perform(put(BASE + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -104,7 +136,8 @@ class InsuranceApiTests {
     }
 
     @Test void putCarIdNotFound() throws Exception {
-        long id = createPolicy(1L);
+        long carId = createCar();
+        long id = createPolicy(carId);
         Map<String,Object> m = dto(999L, "Allianz", "2025-01-01", "2025-12-31");
 
         mvc.perform(put(BASE + "/" + id)
@@ -114,8 +147,9 @@ class InsuranceApiTests {
     }
 
     @Test void putStartDateIsNull() throws Exception {
-        long id = createPolicy(1L);
-        Map<String,Object> m = dto(1L, "Allianz", null, "2025-12-31");
+        long carId = createCar();
+        long id = createPolicy(carId);
+        Map<String,Object> m = dto(carId, "Allianz", null, "2025-12-31");
 
         mvc.perform(put(BASE + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -124,8 +158,9 @@ class InsuranceApiTests {
     }
 
     @Test void putEndDateIsNull() throws Exception {
-        long id = createPolicy(1L);
-        Map<String,Object> m = dto(1L, "Allianz", "2025-01-01", null);
+        long carId = createCar();
+        long id = createPolicy(carId);
+        Map<String,Object> m = dto(carId, "Allianz", "2025-01-01", null);
 
         mvc.perform(put(BASE + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -134,8 +169,9 @@ class InsuranceApiTests {
     }
 
     @Test void putStartDateAfterEndDate() throws Exception {
-        long id = createPolicy(1L);
-        Map<String,Object> m = dto(1L, "Allianz", "2025-12-31", "2025-01-01");
+        long carId = createCar();
+        long id = createPolicy(carId);
+        Map<String,Object> m = dto(carId, "Allianz", "2025-12-31", "2025-01-01");
 
         mvc.perform(put(BASE + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -143,9 +179,92 @@ class InsuranceApiTests {
                 .andExpect(status().isBadRequest());
     }
 
+    // OVERLAP CASES
+    @Test void overlappingPoliciesAreRejected() throws Exception {
+        long carId = createCar();
+        long id = createPolicy(carId);
+
+        mvc.perform(post(BASE).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(carId, "Groupama", "2025-12-31", "2026-06-30"))))
+                .andExpect(status().isConflict())
+                .andExpect(status().reason(containsString("overlaps policy " + id)));
+        mvc.perform(post(BASE).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(1L, "Groupama", "2025-06-01", "2025-06-30"))))
+                .andExpect(status().isConflict());
+
+        // Adjacent periods do not overlap; a policy never overlaps itself.
+        MvcResult next = mvc.perform(post(BASE).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(carId, "Groupama", "2026-01-01", "2026-06-30"))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        long nextId = om.readTree(next.getResponse().getContentAsString()).get("id").asLong();
+        mvc.perform(put(BASE + "/" + id).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(carId, "Allianz", "2024-06-01", "2025-12-31"))))
+                .andExpect(status().isOk());
+
+        mvc.perform(put(BASE + "/" + nextId).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(carId, "Groupama", "2025-06-01", "2026-06-30"))))
+                .andExpect(status().isConflict());
+        // Moving to another car is checked against that car's policies.
+        mvc.perform(put(BASE + "/" + nextId).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(2L, "Groupama", "2025-09-01", "2025-10-31"))))
+                .andExpect(status().isConflict());
+        mvc.perform(put(BASE + "/" + nextId).contentType(MediaType.APPLICATION_JSON)
+                .content(json(dto(2L, "Groupama", "2025-10-01", "2025-10-31"))))
+                .andExpect(status().isOk());
+    }
+
     // GET BY ID CASES
     @Test void getByIdNotFound() throws Exception {
         mvc.perform(get(BASE + "/20"))
                 .andExpect(status().isNotFound());
     }
+
+    // LIST / STREAM CASES
+    @Test void listFiltersByProviderAndRange() throws Exception {
+        mvc.perform(get(BASE).param("provider", "Allianz").param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[*].provider", everyItem(is("Allianz"))));
+
+        mvc.perform(get(BASE).param("from", "2025-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test void streamWritesFilteredNdjson() throws Exception {
+        MvcResult async = mvc.perform(get(BASE + "/stream").param("provider", "Groupama"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        for (String line : body.strip().split("\n")) {
+            assertEquals("Groupama", om.readTree(line).get("provider").asText());
+        }
+    }
+
+    @Test void policyWrittenOnAnotherNodeIsPickedUpByTheNextPoll() throws Exception {
+        long carId = createCar();
+        assertEquals(false, validOn(carId, "2026-06-01"));
+
+        // Another node's write: the row and its change record, but none of this node's after-commit hooks.
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            policyRepository.save(new InsurancePolicy(carRepository.getReferenceById(carId), "Remote",
+                    LocalDate.parse("2026-01-01"), LocalDate.parse("2026-12-31")));
+            coverageChanges.record(carId);
+        });
+        assertEquals(false, validOn(carId, "2026-06-01"));
+
+        coverageChanges.poll();
+        assertEquals(true, validOn(carId, "2026-06-01"));
+    }
+
+    private boolean validOn(long carId, String date) throws Exception {
+        String body = mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", date))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return om.readTree(body).get("valid").asBoolean();
+    }
 }
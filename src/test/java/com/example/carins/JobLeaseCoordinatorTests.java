@@ -0,0 +1,65 @@
+package com.example.carins;
+
+import com.example.carins.jobs.JobLeaseCoordinator;
+import com.example.carins.repo.JobLeaseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JobLeaseCoordinatorTests {
+
+    @Autowired JobLeaseRepository leaseRepository;
+    @Autowired PlatformTransactionManager txManager;
+
+    private JobLeaseCoordinator node(String id, Duration ttl) {
+        return new JobLeaseCoordinator(leaseRepository, txManager, id, ttl);
+    }
+
+    @Test
+    void only_one_node_holds_the_lease_until_release() {
+        JobLeaseCoordinator a = node("node-a", Duration.ofMinutes(5));
+        JobLeaseCoordinator b = node("node-b", Duration.ofMinutes(5));
+
+        Optional<JobLeaseCoordinator.Lease> leaseA = a.tryAcquire("test-release");
+        assertTrue(leaseA.isPresent());
+        assertTrue(b.tryAcquire("test-release").isEmpty());
+        // A second run on the same node does not share the lease either.
+        assertTrue(a.tryAcquire("test-release").isEmpty());
+
+        leaseA.get().close();
+
+        Optional<JobLeaseCoordinator.Lease> leaseB = b.tryAcquire("test-release");
+        assertTrue(leaseB.isPresent());
+        assertEquals("node-b", leaseRepository.findById("test-release").orElseThrow().getNodeId());
+        leaseB.get().close();
+        a.shutdown();
+        b.shutdown();
+    }
+
+    @Test
+    void expired_lease_fails_over_and_old_holder_notices() throws Exception {
+        JobLeaseCoordinator a = node("node-a", Duration.ofMillis(300));
+        JobLeaseCoordinator b = node("node-b", Duration.ofMinutes(5));
+
+        JobLeaseCoordinator.Lease leaseA = a.tryAcquire("test-failover").orElseThrow();
+        // Node A stalls: no heartbeat reaches the database before the lease runs out.
+        a.shutdown();
+        Thread.sleep(400);
+
+        Optional<JobLeaseCoordinator.Lease> leaseB = b.tryAcquire("test-failover");
+        assertTrue(leaseB.isPresent());
+
+        assertFalse(leaseA.renew());
+        assertFalse(leaseA.isHeld());
+        assertTrue(leaseB.get().renew());
+        leaseB.get().close();
+        b.shutdown();
+    }
+}
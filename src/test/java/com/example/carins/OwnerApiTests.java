@@ -86,6 +86,20 @@ class OwnerApiTests {
                 .andExpect(status().isConflict());
     }
 
+    @Test
+    void createConflictOnEmailDifferingOnlyInCase() throws Exception {
+        mvc.perform(post(OWNERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(dto("C", "case.dup@example.com"))))
+                .andExpect(status().isCreated());
+
+        mvc.perform(post(OWNERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJson(dto("D", "Case.Dup@Example.COM"))))
+                .andExpect(status().isConflict())
+                .andExpect(status().reason(containsString("case.dup@example.com already exists")));
+    }
+
     @Test
     void updateConflictOnDuplicateEmail() throws Exception {
         // Owner A
@@ -1,19 +1,32 @@
 package com.example.carins;
 
+import com.example.carins.jobs.ExpiryRunReport;
 import com.example.carins.jobs.PolicyExpiryScheduler;
+import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.web.dto.InsurancePolicyDto;
 import com.example.carins.model.Car;
 import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.JobWatermark;
 import com.example.carins.model.Owner;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.JobWatermarkRepository;
 import com.example.carins.repo.OwnerRepository;
 import com.example.carins.repo.PolicyExpiryLogRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,7 +37,10 @@ class PolicyExpirySchedulerTests {
     @Autowired OwnerRepository ownerRepository;
     @Autowired CarRepository carRepository;
     @Autowired PolicyExpiryLogRepository logRepository;
+    @Autowired JobWatermarkRepository watermarkRepository;
     @Autowired PolicyExpiryScheduler scheduler;
+    @Autowired InsurancePolicyService policyService;
+    @Autowired JdbcTemplate jdbc;
 
     @Test
     @Transactional
@@ -49,4 +65,125 @@ class PolicyExpirySchedulerTests {
 
         assertEquals(countAfterFirst, countAfterSecond);
     }
+
+    @Test
+    @Transactional
+    void scheduler_catches_up_missed_days() {
+        Owner owner = ownerRepository.save(new Owner("Maria Pop", "maria.pop@example.com"));
+        Car car = carRepository.save(new Car("VIN45654", "Skoda", "Fabia", 2019, owner));
+        LocalDate today = LocalDate.now();
+
+        InsurancePolicy missed = policyRepository.save(
+                new InsurancePolicy(car, "Allianz", today.minusYears(1), today.minusDays(3)));
+        InsurancePolicy recent = policyRepository.save(
+                new InsurancePolicy(car, "Groupama", today.minusDays(2), today.minusDays(1)));
+        InsurancePolicy beforeWatermark = policyRepository.saveAndFlush(
+                new InsurancePolicy(car, "Omniasig", today.minusYears(2), today.minusDays(5)));
+
+        // Last completed run covered four days ago; the service was down since.
+        watermarkRepository.saveAndFlush(new JobWatermark("policy-expiry", today.minusDays(4)));
+
+        scheduler.logRecentlyExpiredPolicies();
+
+        assertTrue(logRepository.existsByPolicyId(missed.getId()));
+        assertTrue(logRepository.existsByPolicyId(recent.getId()));
+        assertFalse(logRepository.existsByPolicyId(beforeWatermark.getId()));
+        assertEquals(today.minusDays(1),
+                watermarkRepository.findById("policy-expiry").orElseThrow().getLastProcessedDate());
+    }
+
+    // Not @Transactional: each chunk must commit on its own, so the test cleans up after itself.
+    @Test
+    void scheduler_chunked_resumes_from_checkpoint() {
+        Owner owner = ownerRepository.save(new Owner("Dan Radu", "dan.radu@example.com"));
+        Car car = carRepository.save(new Car("VIN78987", "Ford", "Focus", 2017, owner));
+        // A day no other test's policies end on, so the run sees exactly these four.
+        LocalDate day = LocalDate.of(2020, 2, 29);
+        List<InsurancePolicy> policies = policyRepository.saveAll(List.of(
+                new InsurancePolicy(car, "Allianz", day.minusYears(1), day),
+                new InsurancePolicy(car, "Allianz", day.minusYears(1), day),
+                new InsurancePolicy(car, "Allianz", day.minusYears(1), day),
+                new InsurancePolicy(car, "Allianz", day.minusYears(1), day)));
+        List<Long> ids = policies.stream().map(InsurancePolicy::getId).sorted().toList();
+        Optional<JobWatermark> previous = watermarkRepository.findById("policy-expiry");
+        try {
+            watermarkRepository.save(new JobWatermark("policy-expiry", day.minusDays(1)));
+
+            // The node dies before its second chunk. The checkpoint is read on another thread, so
+            // from another connection: it sees the first chunk's checkpoint only once that committed.
+            AtomicInteger checks = new AtomicInteger();
+            AtomicReference<Map<String, Object>> committed = new AtomicReference<>();
+            assertThrows(IllegalStateException.class, () -> scheduler.run(day, 2, () -> {
+                if (checks.incrementAndGet() == 1) {
+                    return true;
+                }
+                committed.set(CompletableFuture.supplyAsync(() -> jdbc.queryForMap(
+                        "select checkpoint_date, checkpoint_policy_id from job_watermark where job_name = 'policy-expiry'")).join());
+                throw new IllegalStateException("node stopped");
+            }));
+
+            assertEquals(Date.valueOf(day), committed.get().get("CHECKPOINT_DATE"));
+            assertEquals(ids.get(1), ((Number) committed.get().get("CHECKPOINT_POLICY_ID")).longValue());
+            assertTrue(logRepository.existsByPolicyId(ids.get(0)));
+            assertTrue(logRepository.existsByPolicyId(ids.get(1)));
+            assertFalse(logRepository.existsByPolicyId(ids.get(2)));
+            assertFalse(logRepository.existsByPolicyId(ids.get(3)));
+
+            ExpiryRunReport report = scheduler.run(day, 2);
+
+            assertEquals(day, report.from());
+            assertEquals(2, report.recorded());
+            assertTrue(logRepository.existsByPolicyId(ids.get(2)));
+            assertTrue(logRepository.existsByPolicyId(ids.get(3)));
+
+            JobWatermark after = watermarkRepository.findById("policy-expiry").orElseThrow();
+            assertEquals(day, after.getLastProcessedDate());
+            assertNull(after.getCheckpointDate());
+        } finally {
+            jdbc.update("delete from policy_expiry_log where policy_id in (?, ?, ?, ?)", ids.toArray());
+            policyRepository.deleteAll(policies);
+            carRepository.delete(car);
+            ownerRepository.delete(owner);
+            watermarkRepository.deleteById("policy-expiry");
+            previous.ifPresent(watermarkRepository::save);
+        }
+    }
+
+    @Test
+    void timer_fires_for_policy_written_through_service() throws Exception {
+        Owner owner = ownerRepository.save(new Owner("Ana Timer", "ana.timer@example.com"));
+        Car car = carRepository.save(new Car("VINTIMER", "Opel", "Astra", 2015, owner));
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+
+        // Its expiry midnight has already passed, so the timer fires right after commit.
+        InsurancePolicyDto policy = policyService.create(
+                new InsurancePolicyDto(null, car.getId(), "Allianz", yesterday.minusMonths(6), yesterday));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!logRepository.existsByPolicyId(policy.id()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(logRepository.existsByPolicyId(policy.id()));
+    }
+
+    @Test
+    void timer_ignores_backdated_policy() throws Exception {
+        Owner owner = ownerRepository.save(new Owner("Ana Backdated", "ana.backdated@example.com"));
+        Car car = carRepository.save(new Car("VINBACKD", "Opel", "Corsa", 2014, owner));
+        LocalDate today = LocalDate.now();
+
+        // Historical policy entered after the fact: it ended long before the timer's window.
+        InsurancePolicyDto backdated = policyService.create(
+                new InsurancePolicyDto(null, car.getId(), "Allianz", today.minusYears(2), today.minusYears(1)));
+        // Written after it and due later than it would be, so once this one is logged the backdated one had its chance.
+        InsurancePolicyDto recent = policyService.create(
+                new InsurancePolicyDto(null, car.getId(), "Groupama", today.minusMonths(6), today.minusDays(1)));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!logRepository.existsByPolicyId(recent.id()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(logRepository.existsByPolicyId(recent.id()));
+        assertFalse(logRepository.existsByPolicyId(backdated.id()));
+    }
 }
@@ -0,0 +1,135 @@
+package com.example.carins;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.carins.ApiTestSupport.createdId;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Own context (and database): the stress run creates hundreds of policies. Few stripes, so different cars share locks.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "carins.policies.lock-stripes=4")
+class PolicyOverlapTests {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 40;
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+    @Autowired InsurancePolicyRepository policyRepository;
+
+    @Test
+    void concurrent_writes_to_one_car_never_leave_overlaps() throws Exception {
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Overlap Owner", "email", "overlap.owner@example.com"));
+        long[] carIds = {car(ownerId, "OVLP0001"), car(ownerId, "OVLP0002")};
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        run((thread, i) -> {
+            Random random = new Random(thread * 1000L + i);
+            long carId = carIds[random.nextInt(carIds.length)];
+            LocalDate start = LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365));
+            int status = insure(carId, start, start.plusDays(random.nextInt(30)));
+            if (status == 201) {
+                created.incrementAndGet();
+            } else {
+                assertEquals(409, status);
+                conflicts.incrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS * PER_THREAD, created.get() + conflicts.get());
+        assertTrue(conflicts.get() > 0, "periods are dense enough to collide");
+        int stored = 0;
+        for (long carId : carIds) {
+            List<InsurancePolicyDto> policies = policyRepository.findDtosByCarId(carId);
+            for (int i = 1; i < policies.size(); i++) {
+                assertTrue(policies.get(i - 1).endDate().isBefore(policies.get(i).startDate()),
+                        policies.get(i - 1) + " overlaps " + policies.get(i));
+            }
+            stored += policies.size();
+        }
+        assertEquals(created.get(), stored);
+    }
+
+    @Test
+    void concurrent_writes_to_different_cars_all_succeed() throws Exception {
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Fleet Overlap Owner", "email", "fleet.overlap@example.com"));
+        long[] carIds = new long[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            carIds[t] = car(ownerId, String.format("OVLPF%03d", t));
+        }
+
+        // Each thread owns a car and writes back-to-back months, so nothing may be rejected.
+        run((thread, i) -> {
+            LocalDate start = LocalDate.of(2030, 1, 1).plusMonths(i);
+            assertEquals(201, insure(carIds[thread], start, start.plusMonths(1).minusDays(1)));
+        });
+
+        for (long carId : carIds) {
+            assertEquals(PER_THREAD, policyRepository.findDtosByCarId(carId).size());
+        }
+    }
+
+    private interface Step {
+        void run(int thread, int i) throws Exception;
+    }
+
+    private void run(Step step) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        step.run(thread, i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int insure(long carId, LocalDate start, LocalDate end) throws Exception {
+        return mvc.perform(post("/api/insurances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("carId", carId, "provider", "OverlapIns",
+                                "startDate", start.toString(), "endDate", end.toString()))))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private long car(long ownerId, String vin) throws Exception {
+        return createdId(mvc, om, post("/api/cars"), Map.of("vin", vin, "make", "Overlap", "model", "O1", "year", 2020, "ownerId", ownerId));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.carins;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Owner;
+import com.example.carins.pricing.PremiumQuoteService;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.web.dto.FleetQuoteDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.carins.ApiTestSupport.createdId;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Own context (and database): the 600-car fleet must not shift ids other test classes rely on.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "carins.pricing.parallelism=2")
+class PremiumQuoteTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+    @Autowired PremiumQuoteService quotes;
+    @Autowired CarRepository carRepository;
+    @Autowired OwnerRepository ownerRepository;
+
+    @Test
+    void quote_reflects_coverage_and_claims_and_is_invalidated_on_writes() throws Exception {
+        LocalDate today = LocalDate.now();
+        long ownerId = createdId(mvc, om, post("/api/owners"), Map.of("name", "Quote Owner", "email", "quote.owner@example.com"));
+        long carId = createdId(mvc, om, post("/api/cars"), Map.of("vin", "QUOTE001", "make", "Quotemobile", "model", "Q1",
+                "year", today.getYear() - 5, "ownerId", ownerId));
+
+        // Never insured in the window: continuity +50%.
+        String quote = "/api/cars/" + carId + "/quote";
+        mvc.perform(get(quote))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ageFactor").value(1.0))
+                .andExpect(jsonPath("$.continuityFactor").value(1.5))
+                .andExpect(jsonPath("$.claimFactor").value(1.0))
+                .andExpect(jsonPath("$.premium").value(750.0));
+        long hits = quotes.cacheStats().hits();
+        mvc.perform(get(quote)).andExpect(jsonPath("$.premium").value(750.0));
+        assertEquals(hits + 1, quotes.cacheStats().hits());
+
+        createdId(mvc, om, post("/api/insurances"), Map.of("carId", carId, "provider", "QuoteIns",
+                "startDate", today.minusYears(4).toString(), "endDate", today.plusYears(1).toString()));
+        mvc.perform(get(quote))
+                .andExpect(jsonPath("$.uninsuredDays").value(0))
+                .andExpect(jsonPath("$.continuityFactor").value(1.0))
+                .andExpect(jsonPath("$.premium").value(500.0));
+
+        createdId(mvc, om, post("/api/cars/" + carId + "/claims"), Map.of("carId", carId, "claimDate", today.minusMonths(1).toString(),
+                "description", "Quote claim", "amount", 2000));
+        mvc.perform(get(quote))
+                .andExpect(jsonPath("$.claimsInWindow").value(1))
+                .andExpect(jsonPath("$.claimFactor").value(1.3));
+
+        mvc.perform(get("/api/cars/999999/quote"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void fleet_quotes_run_in_parallel_chunks_and_are_served_from_cache_afterwards() throws Exception {
+        Owner owner = ownerRepository.save(new Owner("Fleet Owner", "fleet.owner@example.com"));
+        List<Car> fleet = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            fleet.add(new Car(String.format("FLT%05d", i), "Fleetwagen", "F" + (i % 3), 2010 + i % 15, owner));
+        }
+        carRepository.saveAll(fleet);
+
+        FleetQuoteDto first = quotes.quoteFleet(owner.getId());
+        assertEquals(600, first.quotes().size());
+        assertEquals(0, first.cached());
+        FleetQuoteDto second = quotes.quoteFleet(owner.getId());
+        assertEquals(600, second.cached());
+        assertEquals(first.quotes(), second.quotes());
+        assertEquals(first.totalPremium(), second.totalPremium());
+
+        JsonNode batch = om.readTree(mvc.perform(post("/api/quotes:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(List.of(fleet.get(1).getId(), 999999L, fleet.get(0).getId()))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals(fleet.get(1).getId(), batch.get("quotes").get(0).get("carId").asLong());
+        assertEquals(fleet.get(0).getId(), batch.get("quotes").get(1).get("carId").asLong());
+        assertEquals(999999L, batch.get("notFound").get(0).asLong());
+
+        mvc.perform(get("/api/owners/999999/quotes"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.carins;
+
+import com.example.carins.service.CarService;
+import com.example.carins.service.SingleFlight;
+import com.example.carins.web.dto.ClaimDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestCoalescingTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+    @Autowired CarService carService;
+
+    @Test
+    void concurrent_calls_share_one_load_and_its_outcome() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> flight.load(1L, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "car 1";
+                })));
+            }
+            // Wait until the seven followers have joined the blocked leader.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (flight.stats().coalesced() < 7 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("car 1", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(new SingleFlight.Stats("test", 8, 1, 7, 0), flight.stats());
+
+            // Failures are shared too, and nothing is kept afterwards.
+            CountDownLatch failLater = new CountDownLatch(1);
+            Future<String> leader = pool.submit(() -> flight.load(2L, () -> {
+                await(failLater);
+                throw new NoSuchElementException("Car with id 2 not found!");
+            }));
+            while (flight.stats().inFlight() == 0) {
+                Thread.sleep(5);
+            }
+            Future<String> follower = pool.submit(() -> flight.load(2L, () -> "never"));
+            while (flight.stats().coalesced() < 8) {
+                Thread.sleep(5);
+            }
+            failLater.countDown();
+            for (Future<String> f : List.of(leader, follower)) {
+                Exception ex = assertThrows(Exception.class, () -> f.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(NoSuchElementException.class, ex.getCause());
+            }
+            assertEquals("found", flight.load(2L, () -> "found"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void forget_lets_later_callers_start_a_fresh_load() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = pool.submit(() -> flight.load(1L, () -> {
+                await(release);
+                return "before write";
+            }));
+            while (flight.stats().inFlight() == 0) {
+                Thread.sleep(5);
+            }
+            flight.forget(id -> id == 1L);
+            assertEquals("after write", flight.load(1L, () -> "after write"));
+            release.countDown();
+            assertEquals("before write", stale.get(10, TimeUnit.SECONDS));
+            assertEquals(0, flight.stats().coalesced());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void coalesced_service_methods_report_their_calls() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<List<ClaimDto>>> histories = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                histories.add(pool.submit(() -> carService.history(1L, null, null, null, null, 10)));
+                pool.submit(() -> carService.isInsuranceValid(1L, LocalDate.of(2024, 6, 1)));
+            }
+            for (Future<List<ClaimDto>> history : histories) {
+                assertNotNull(history.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        JsonNode stats = om.readTree(mvc.perform(get("/api/cache/coalescing"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals(2, stats.size());
+        for (JsonNode method : stats) {
+            assertEquals(method.get("calls").asLong(), method.get("loads").asLong() + method.get("coalesced").asLong());
+        }
+        assertEquals("history", stats.get(0).get("method").asText());
+        assertTrue(stats.get(0).get("calls").asLong() >= 64);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.carins;
+
+import com.example.carins.web.AdmissionControlFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Own context: virtual threads on, with a tiny admission limit that the test can fill by hand.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.threads.virtual.enabled=true",
+        "carins.web.admission.max-concurrent-requests=2",
+        "carins.web.admission.timeout=PT0.05S"})
+class VirtualThreadModeTests {
+
+    @Autowired MockMvc mvc;
+    @Autowired AdmissionControlFilter admission;
+    @Autowired TaskScheduler taskScheduler;
+
+    @Test
+    void requests_beyond_the_admission_limit_get_503_after_the_timeout() throws Exception {
+        assertEquals(2, admission.maxConcurrent());
+        mvc.perform(get("/api/cars/1"))
+                .andExpect(status().isOk());
+
+        assertTrue(admission.tryEnter());
+        assertTrue(admission.tryEnter());
+        try {
+            long rejected = admission.rejectedCount();
+            mvc.perform(get("/api/cars/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            assertEquals(rejected + 1, admission.rejectedCount());
+            // Only the API is limited.
+            mvc.perform(get("/h2-console/"))
+                    .andExpect(result -> assertNotEquals(503, result.getResponse().getStatus()));
+        } finally {
+            admission.exit();
+            admission.exit();
+        }
+
+        mvc.perform(get("/api/cars/1"))
+                .andExpect(status().isOk());
+        // Permits come back after each request, including failed ones.
+        mvc.perform(get("/api/cars/999999"))
+                .andExpect(status().isNotFound());
+        assertTrue(admission.tryEnter());
+        assertTrue(admission.tryEnter());
+        admission.exit();
+        admission.exit();
+    }
+
+    @Test
+    void scheduled_jobs_run_on_virtual_threads() throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        taskScheduler.schedule(() -> virtual.complete(Thread.currentThread().isVirtual()), Instant.now());
+        assertTrue(virtual.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.carins;
+
+import com.example.carins.web.AdmissionControlFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput and latency of the existing read endpoints on platform threads vs. virtual threads,
+ * each against its own server on a random port. Only runs with
+ * {@code mvn test -Dcarins.benchmark=true -Dtest=WebLoadBenchmarkTests}; tune with
+ * {@code -Dcarins.benchmark.clients=400 -Dcarins.benchmark.seconds=15}.
+ */
+class WebLoadBenchmarkTests {
+    private static final Logger log = LoggerFactory.getLogger(WebLoadBenchmarkTests.class);
+
+    private static final int CLIENTS = Integer.getInteger("carins.benchmark.clients", 400);
+    private static final int SECONDS = Integer.getInteger("carins.benchmark.seconds", 15);
+    private static final int WARM_UP_SECONDS = 3;
+
+    @Test
+    @EnabledIfSystemProperty(named = "carins.benchmark", matches = "true")
+    void platform_vs_virtual_threads() throws Exception {
+        // Both servers share this JVM, so a first short round warms up the JIT for whichever goes first.
+        run(false, WARM_UP_SECONDS);
+        run(true, WARM_UP_SECONDS);
+        Result platform = run(false, SECONDS);
+        Result virtual = run(true, SECONDS);
+
+        log.info("Web load, {} clients for {} s (insurance-valid, history, insurances page):", CLIENTS, SECONDS);
+        for (Result r : List.of(platform, virtual)) {
+            log.info(String.format("  %-8s %6d req/s  p50 %7.1f ms  p99 %7.1f ms  max %7.1f ms  %d x 503",
+                    r.mode(), r.requestsPerSecond(), r.p50Millis(), r.p99Millis(), r.maxMillis(), r.rejected()));
+        }
+        assertEquals(0, platform.failed());
+        assertEquals(0, virtual.failed());
+    }
+
+    private Result run(boolean virtualThreads, int seconds) throws Exception {
+        // Command-line args: builder default properties would lose to application.properties.
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--carins.expiry.timer.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.carins.WebLoadBenchmarkTests=INFO")) {
+            // The admission filter only exists in virtual-thread mode, so this proves the mode took effect.
+            assertEquals(virtualThreads, app.getBeanProvider(AdmissionControlFilter.class).getIfAvailable() != null);
+            String base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient http = HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_1_1)
+                         .executor(clients)
+                         .connectTimeout(Duration.ofSeconds(5))
+                         .build()) {
+                load(http, clients, base, WARM_UP_SECONDS);
+                return summarize(virtualThreads ? "virtual" : "platform", seconds, load(http, clients, base, seconds));
+            }
+        }
+    }
+
+    private List<long[]> load(HttpClient http, ExecutorService clients, String base, int seconds) throws Exception {
+        long stopAt = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(clients.submit(() -> client(http, base, stopAt)));
+        }
+        List<long[]> perClient = new ArrayList<>();
+        for (Future<long[]> f : futures) {
+            perClient.add(f.get());
+        }
+        return perClient;
+    }
+
+    // Returns latencies in nanos; a negative entry is a 503, Long.MIN_VALUE any other failure.
+    private static long[] client(HttpClient http, String base, long stopAt) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[1024];
+        int n = 0;
+        while (System.nanoTime() < stopAt) {
+            long carId = 1 + random.nextInt(2);
+            LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(730));
+            String path = switch (random.nextInt(3)) {
+                case 0 -> "/api/cars/" + carId + "/insurance-valid?date=" + date;
+                case 1 -> "/api/cars/" + carId + "/history?from=" + date.minusYears(1) + "&to=" + date;
+                default -> "/api/insurances?limit=50&from=" + date + "&to=" + date.plusMonths(6);
+            };
+            long started = System.nanoTime();
+            long latency;
+            try {
+                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base + path)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                latency = System.nanoTime() - started;
+                if (response.statusCode() == 503) {
+                    latency = -Math.max(1, latency);
+                } else if (response.statusCode() != 200) {
+                    latency = Long.MIN_VALUE;
+                }
+            } catch (Exception ex) {
+                latency = Long.MIN_VALUE;
+            }
+            if (n == latencies.length) {
+                latencies = Arrays.copyOf(latencies, n * 2);
+            }
+            latencies[n++] = latency;
+        }
+        return Arrays.copyOf(latencies, n);
+    }
+
+    private static Result summarize(String mode, int seconds, List<long[]> perClient) {
+        long[] ok = perClient.stream().flatMapToLong(Arrays::stream).filter(l -> l > 0).sorted().toArray();
+        long rejected = perClient.stream().flatMapToLong(Arrays::stream).filter(l -> l < 0 && l != Long.MIN_VALUE).count();
+        long failed = perClient.stream().flatMapToLong(Arrays::stream).filter(l -> l == Long.MIN_VALUE).count();
+        assertTrue(ok.length > 0, mode + ": no successful requests");
+        return new Result(mode, ok.length / seconds, millis(ok[ok.length / 2]),
+                millis(ok[(int) Math.min(ok.length - 1, Math.ceil(ok.length * 0.99) - 1)]),
+                millis(ok[ok.length - 1]), rejected, failed);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private record Result(String mode, long requestsPerSecond, double p50Millis, double p99Millis, double maxMillis,
+                          long rejected, long failed) {}
+}